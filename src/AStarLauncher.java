@@ -1,6 +1,4 @@
 
-import java.io.DataInputStream;
-import java.io.FileInputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -13,48 +11,204 @@ import java.util.Stack;
  * to the next set of possible states and arrange them such that the one with lesser number
  * of moves possible is picked first. This enables us to fail early, hence reducing 
  * the excess overhead of expanding nodes which would eventually fail. 
+ *
+ * Like DFSLauncher it searches any BoardTopology. The pagoda functions, the
+ * solution database and the endgame table are only used on the English board.
  */
-public class AStarLauncher {
+public class AStarLauncher implements PegSolver {
 	
 	
-	//Size of the board - in this case 7
+	//The board searched, its holes, jumps and symmetries
+	private BoardTopology topology;
+	//Size of the board - 7 for the English board
 	private int N;
-	//The actual board
+	//The input board, used for its layout when displaying
 	private char board[][];
+	//The actual board, one bit per hole
+	private long pegs;
 	//Indicated if a valid path is found
 	private boolean done;
 	//number of pegs on board
 	private int numPegs;
 	//stack to store moves
 	Stack<pair> moves;
-	//Direction numbering 
-	private final int up=1;
-	private final int right=2;
-	private final int down=3;
-	private final int left=4;
+	//Set when the start position is outside the class of the centre finish
+	boolean rejected = false;
+	//positions already proven to have no winning path
+	LongHashSet deadCache;
+	//pagoda functions checked on every move, and the branches they cut
+	PagodaSet pagodas;
+	long pagodaPrunes = 0;
+	//positions decided by earlier searches, kept on disk (-Dpeg.db)
+	SolutionDatabase database;
+	//winning positions with few pegs, looked up instead of searched (-Dpeg.endgamePegs)
+	EndgameTable endgame;
+	long endgameLookups = 0;
+	//counters of the last solve, and the deepest node it expanded
+	SolverMetrics metrics;
+	int maxDepth = 0;
+	//Depth of the node entered last. With path, read by a ProgressSampler on
+	//another thread without any locking
+	private int depth = 0;
 	//Counter for expanded nodes
-	public static int expandedNodes= 0;
-	public static int verbose = 0;
-	//Default constructor, initializes the board
+	int expandedNodes= 0;
+	int verbose = 0;
+	//Set from another thread to stop the search early
+	private volatile boolean cancelled = false;
+	//Wall-clock deadline and node budget of the running search, 0 for none
+	private long deadline;
+	private long maxNodes;
+	//Node count at which the limits are next looked at
+	private long nextCheck;
+	//Set once a limit has stopped the search
+	private boolean stopped;
+	//Outcome of the last solveGame
+	private SolveResult result;
+	//Nodes between two looks at the clock and the cancel flag
+	private static final int CHECK_INTERVAL = 4096;
+	//Runs the search on the preallocated arrays below instead of lists of pairs.
+	//-Dpeg.alloc=list selects the list search
+	boolean allocationFree = !"list".equals(System.getProperty("peg.alloc"));
+	//Per-depth candidate moves of the current peg and their scores
+	private int candMove[][];
+	private int candScore[][];
+	//Moves made so far, by depth
+	private int path[];
+	//What enterNode found out about a node
+	private static final int EXPAND = 0;
+	private static final int SKIP = 1;
+	private static final int WON = 2;
+	//Default constructor, initializes the English board of the given size
 	public AStarLauncher(int dimension, String boardState[])
 	{
-		//Allocating space/initializing variables
-		numPegs = 0;
+		this(BoardTopology.ENGLISH, boardState);
+	}
+
+	//A solver for any board
+	public AStarLauncher(BoardTopology topology, String boardState[])
+	{
+		//Allocating space
+		this.topology = topology;
 		moves = new Stack<pair>();
-		N = dimension;
-		done = false;
+		N = topology.N;
 		board = new char[N][N];
-	
-		//Setting board to input board
+		deadCache = LongHashSet.fromProperties();
+		if(topology == BoardTopology.ENGLISH)
+		{
+			pagodas = PagodaSet.fromProperties();
+			database = SolutionDatabase.fromProperties();
+			endgame = EndgameTable.fromProperties();
+			metrics = new SolverMetrics("AStarLauncher");
+		}
+		else
+		{
+			metrics = new SolverMetrics("AStarLauncher/" + topology.name);
+		}
+		//A peg has at most one jump per direction
+		candMove = new int[topology.holes + 1][topology.di.length];
+		candScore = new int[topology.holes + 1][topology.di.length];
+		path = new int[topology.holes + 1];
+		reset(boardState);
+	}
+
+	//Loads a new board into this solver. Dead positions stay in the cache, as a
+	//position is dead whatever board it was reached from
+	public void reset(String boardState[])
+	{
+		numPegs = 0;
+		moves.clear();
+		done = false;
+		rejected = false;
+		cancelled = false;
+		stopped = false;
+		result = null;
+		expandedNodes = 0;
+		maxDepth = 0;
+		depth = 0;
+		pagodaPrunes = 0;
+		endgameLookups = 0;
 		for(int i = 0 ; i < N ; i ++)
 		{
 			for(int j = 0 ; j < N ; j ++)
 			{
-				board[i][j] = boardState[i].charAt(j);
+				board[i][j] = j < boardState[i].length() ? boardState[i].charAt(j) : '-';
 				if(board[i][j]=='X')
+				{
+					if(!topology.isHole(i, j))
+						throw new IllegalArgumentException("Peg at (" + i + "," + j + ") is off the " + topology.name + " board");
 					numPegs++;
+				}
 			}
 		}
+		pegs = topology.fromBoard(board);
+	}
+
+	public boolean isSolved()
+	{
+		return done;
+	}
+
+	public Stack<pair> getMoves()
+	{
+		return moves;
+	}
+
+	public long getExpandedNodes()
+	{
+		return expandedNodes;
+	}
+
+	public void cancel()
+	{
+		cancelled = true;
+	}
+
+	public SolveResult getResult()
+	{
+		return result;
+	}
+
+	public SolverMetrics getMetrics()
+	{
+		return metrics;
+	}
+
+	public BoardTopology getTopology()
+	{
+		return topology;
+	}
+
+	public int getDepth()
+	{
+		return depth;
+	}
+
+	public long getPosition()
+	{
+		return pegs;
+	}
+
+	public int getLine(int line[])
+	{
+		int n = Math.min(depth, line.length);
+		System.arraycopy(path, 0, line, 0, n);
+		return n;
+	}
+
+	//Looks at the limits. Called when expandedNodes reaches nextCheck, so the
+	//clock and the cancel flag are read once every CHECK_INTERVAL nodes
+	private boolean limitReached()
+	{
+		if(cancelled || (maxNodes > 0 && expandedNodes >= maxNodes)
+			|| (deadline > 0 && System.currentTimeMillis() >= deadline))
+		{
+			stopped = true;
+			return true;
+		}
+		nextCheck = expandedNodes + CHECK_INTERVAL;
+		if(maxNodes > 0 && nextCheck > maxNodes)
+			nextCheck = maxNodes;
+		return false;
 	}
 	
 	//Displays the solution once the gabe has been completed
@@ -86,77 +240,65 @@ public class AStarLauncher {
 	// failing early
 	public int getNumberOfMovesPossible(char[][] testBoard)
 	{
-		//stores the number of moves possible in from a particular stage
-		int numMoves = 0;
-		for(int  i =0  ; i < N ; i ++)
-		{
-			for(int j = 0 ; j < N ; j ++)
-			{
-				//For every peg
-				if(testBoard[i][j]=='X')
-				{
-					//Check possible move down
-					if(i+2 < N)
-					{
-						if(testBoard[i+2][j]=='0' && testBoard[i+1][j]=='X')
-							numMoves++;
-					}
-					//check possible move up
-					if(i-2 >=0)
-					{
-						if(testBoard[i-2][j]=='0' && testBoard[i-1][j]=='X')
-							numMoves++;
-					}
-					//check possible move right
-					if(j+2 < N)
-					{
-						if(testBoard[i][j+2]=='0' && testBoard[i][j+1]=='X')
-							numMoves++;
-					}
-					//check possible move left
-					if(j-2 >=0)
-					{
-						if(testBoard[i][j-2]=='0' && testBoard[i][j-1]=='X')
-							numMoves++;
-					}
-				}
-			}
-		}
-		return numMoves;
+		return topology.countMoves(topology.fromBoard(testBoard));
 	}
 	
 	//Returns a number representative required by the assignment
-	//of the (i,j) coordinate system that we use for our board
-	public int getPegNumber(int i , int j)throws Exception
+	//of the (i,j) coordinate system that we use for our board. Cells that
+	//are not holes throw an IllegalArgumentException
+	public int getPegNumber(int i , int j)
 	{
-		
-		if(i < 2)
+		return topology.holeAt(i, j);
+	}
+	//Invokes the heuristic DFS 
+	public void solveGame() throws Exception
+	{
+		solveGame(0, 0);
+	}
+
+	//Invokes the heuristic DFS until a System.currentTimeMillis deadline or a number
+	//of expanded nodes is reached, 0 for no limit. The stats are those of the partial search
+	public SolveResult solveGame(long deadline, long maxNodes) throws Exception
+	{
+		this.deadline = deadline;
+		this.maxNodes = maxNodes;
+		nextCheck = 0;
+		metrics.begin(deadCache, database);
+		boolean reachable = topology.canReachTarget(pegs);
+		SolveResult known = null;
+		if(reachable && database != null)
+			known = database.lookup(pegs, moves);
+		//Positions outside the class of the finish are rejected without searching
+		if(!reachable)
 		{
-			if(j>1 && j <5)
-			{
-				return i*3 + j -2;
-			}
+			rejected = true;
 		}
-		else if(i>=2 && i<=4)
+		else if(known != null)
 		{
-			return 5 + (i-2)*7 + j + 1;			
+			//Decided by an earlier search, in this run or an earlier one
+			done = known == SolveResult.SOLVED;
+			if(done)
+				metrics.solutionFound();
 		}
-		else if (i>4)
+		else if(pagodas != null && !pagodas.reset(pegs))
 		{
-			if(j>1 && j <5)
-			{
-				return 27 + (i-5)*3 + j -2 ; 
-			}
+			pagodaPrunes++;
 		}
-		
-		throw new Exception();
-		
-	}
-	//Invokes the heuristic DFS 
-	public void solveGame() throws Exception
-	{
-		Stack<pair> moveStore = new Stack<pair>();
-		doDfs(numPegs,moveStore);
+		else if(allocationFree)
+		{
+			doDfs(numPegs,topology.countMoves(pegs));
+		}
+		else
+		{
+			Stack<pair> moveStore = new Stack<pair>();
+			doDfs(numPegs,topology.countMoves(pegs),moveStore);
+		}
+		result = done ? SolveResult.SOLVED : stopped ? SolveResult.BUDGET_EXCEEDED : SolveResult.NO_SOLUTION;
+		//Keep what this search decided, so the board is not searched again
+		if(reachable && known == null && database != null && result != SolveResult.BUDGET_EXCEEDED)
+			database.store(pegs, result, moves);
+		metrics.end(result, rejected, expandedNodes, maxDepth, pagodaPrunes, 0, deadCache, database);
+		return result;
 	}
 	
 	// A custom comparator used for sorting
@@ -170,6 +312,7 @@ public class AStarLauncher {
 
 	public void displayBoard()
 	{
+		topology.toBoard(pegs, board);
 		for(int i = 0 ; i < N; i ++)
 		{
 			for(int j = 0 ; j < N ; j ++)
@@ -179,13 +322,39 @@ public class AStarLauncher {
 		}
 		System.out.print("\n");
 	}
-	//Implements heuristic DFS - A* algorithm based on the heuristic we have used
-	public void doDfs(int nPegs, Stack<pair>moveStore) throws Exception
+	//Bookkeeping done by both searches on reaching a node: skipping solved and
+	//known dead positions, counting and tracing the node, and checking for a win
+	private int enterNode(int nPegs)
 	{
-		if(done)return;
+		if(done || stopped)return SKIP;
+
+		//Few enough pegs left for the endgame table to decide the position at once,
+		//without counting it as an expanded node. On a win the callers complete the
+		//line from the table
+		if(endgame != null && nPegs <= endgame.getMaxPegs())
+		{
+			endgameLookups++;
+			if(endgame.contains(pegs))
+			{
+				done = true;
+				metrics.solutionFound();
+				return WON;
+			}
+			return SKIP;
+		}
 		
-		//Incrementing the expanded nodes
+		//A position reached before by another move order, or a rotation or reflection
+		//of one, that was found dead is not expanded again
+		if(nPegs > 1 && deadCache != null && deadCache.contains(canonical(pegs)))
+			return SKIP;
+		
+		//Incrementing the expanded nodes, within the budget
+		if(expandedNodes >= nextCheck && limitReached())
+			return SKIP;
 		expandedNodes++;
+		depth = numPegs - nPegs;
+		if(depth > maxDepth)
+			maxDepth = depth;
 		if(verbose!=0)
 		{
 			System.out.println("*****");
@@ -194,245 +363,169 @@ public class AStarLauncher {
 		    
 		}
 		// The terminal state. If the # of pegs is one, 
-		// and we are at the center of board, we are done, else not
+		// and we are at the target of the board, we are done, else not
 		if(nPegs==1)
 		{
-			if(board[N/2][N/2]=='X')
+			if(topology.isGoal(pegs))
 			{	
 				done = true;
-				moves= (Stack<pair>) moveStore.clone();
+				metrics.solutionFound();
+				return WON;
 			}
-			return;
+			return SKIP;
+		}
+		return EXPAND;
+	}
+
+	//Implements heuristic DFS - A* algorithm based on the heuristic we have used.
+	//legalMoves is the number of jumps possible on the current board
+	public void doDfs(int nPegs, int legalMoves, Stack<pair>moveStore) throws Exception
+	{
+		switch(enterNode(nPegs))
+		{
+			case WON:
+				moves= (Stack<pair>) moveStore.clone();
+				if(endgame != null)
+					endgame.finishLine(pegs, moves);
+				return;
+			case SKIP:
+				return;
 		}
 
 		// Doing a DFS on the board, choosing all possible pegs 
-		for(int i = 0 ; i < N ; i ++)
+		long rest = pegs;
+		while(rest != 0)
 		{
-			for(int j = 0 ; j < N ; j ++)
+			int h = Long.numberOfTrailingZeros(rest);
+			rest &= rest - 1;
+			//up to one move per direction
+			List<pair> moveArray = new ArrayList<pair>();
+			
+			/*Simulating possible moves for a particular peg.
+			 We get the number of moves possible in the next stage, 
+			 after moving this peg in all possible ways.
+			 After gaining the stats, we can use out heuristic
+			 and arrange moves in order ascending of the number of moves
+			possible in the next step*/
+			for(int m = topology.firstMove[h] ; m < topology.firstMove[h+1] ; m ++)
 			{
-				if(board[i][j]=='X')
+				if(topology.isLegal(pegs, m))
 				{
-					char testBoard[][] = new char[N][N];
-					//4 possible moves
-					List<pair> moveArray = new ArrayList<pair>();
-					
-					copyArray(board, testBoard);
-					
-					/*Simulating possible moves for a particular peg.
-					 We get the number of moves possible in the next stage, 
-					 after moving this peg in all possible ways.
-					 After gaining the stats, we can use out heuristic
-					 and arrange moves in order ascending of the number of moves
-					possible in the next step*/
-					
-					//Check down
-					if(i+2 < N)
-					{
-						if(testBoard[i+2][j]=='0' && testBoard[i+1][j]=='X')
-						{
-							//simulate the move
-							
-							testBoard[i+2][j] = 'X';
-							testBoard[i][j] = '0';
-							testBoard[i+1][j] = '0';
-							int moves = getNumberOfMovesPossible(testBoard);
-							moveArray.add(new pair(moves, down));
-							testBoard[i+2][j] = '0';
-							testBoard[i][j] = 'X';
-							testBoard[i+1][j] = 'X';
-						}
-						else
-						{
-							moveArray.add(new pair(0, down));
-						}
-					}
-					else
-					{
-						moveArray.add(new pair(0, down));
-					}
-					
-					//Check up
-					if(i-2 >=0)
-					{
-						if(testBoard[i-2][j]=='0' && testBoard[i-1][j]=='X')
-						{
-							//simulate the move
-							
-							testBoard[i-2][j] = 'X';
-							testBoard[i][j] = '0';
-							testBoard[i-1][j] = '0';
-							int moves = getNumberOfMovesPossible(testBoard);
-							moveArray.add(new pair(moves, up));
-							testBoard[i-2][j] = '0';
-							testBoard[i][j] = 'X';
-							testBoard[i-1][j] = 'X';
-						}
-						else
-						{
-							moveArray.add(new pair(0, up));
-						}
-					}
-					else
-					{
-						moveArray.add(new pair(0, up));
-					}
-					
-					//Check right
-					if(j+2 < N)
-					{
-						if(testBoard[i][j+2]=='0' && testBoard[i][j+1]=='X')
-						{
-							//simulate the move
-							
-							testBoard[i][j+2] = 'X';
-							testBoard[i][j] = '0';
-							testBoard[i][j+1] = '0';
-							int moves = getNumberOfMovesPossible(testBoard);
-							moveArray.add(new pair(moves, right));
-							testBoard[i][j+2] = '0';
-							testBoard[i][j] = 'X';
-							testBoard[i][j+1] = 'X';
-						}
-						else
-						{
-							moveArray.add(new pair(0, right));
-						}
-					}
-					else
+					int moves = topology.countMovesAfter(pegs, legalMoves, m);
+					moveArray.add(new pair(moves, m));
+				}
+			}
+			
+			//Arrange moves in ascending order of moves possible in the next stage
+			Collections.sort(moveArray, new KeyComparator());
+			
+			//Invoke DFS on this new sorted array, choosing the state with the minimum number
+			// of moves in the next state
+			for(pair move: moveArray)
+			{
+				if(move.x > 0 || (nPegs-1 == 1))
+				{
+					//skip the move if a pagoda function shows it cannot win
+					if(pagodas != null && !pagodas.make(move.y))
 					{
-						moveArray.add(new pair(0, right));
+						pagodaPrunes++;
+						pagodas.unmake(move.y);
+						continue;
 					}
-					
-					//Check left
-					if(j-2 >=0)
+					//manipulate the board after the move
+					pegs ^= topology.moveMask[move.y];
+					moveStore.push(new pair(h, topology.moveTo[move.y]));
+					path[numPegs - nPegs] = move.y;
+					doDfs(nPegs-1, move.x, moveStore);
+					pegs ^= topology.moveMask[move.y];
+					moveStore.pop();
+					if(pagodas != null)
+						pagodas.unmake(move.y);
+				}
+			}
+		}
+		//Every move from here has been tried without success
+		if(!done && !stopped && deadCache != null)
+			deadCache.add(canonical(pegs));
+		return;
+}
+
+	//The same heuristic DFS without heap allocation per node. The candidates of
+	//each peg are scored into the arrays of this depth, insertion sorted, and the
+	//moves made are kept in path until a winning line is found
+	private void doDfs(int nPegs, int legalMoves)
+	{
+		switch(enterNode(nPegs))
+		{
+			case WON:
+				moves.clear();
+				for(int d = 0 ; d < numPegs - nPegs ; d ++)
+					moves.push(new pair(topology.moveFrom[path[d]], topology.moveTo[path[d]]));
+				if(endgame != null)
+					endgame.finishLine(pegs, moves);
+				return;
+			case SKIP:
+				return;
+		}
+
+		int depth = numPegs - nPegs;
+		int cMove[] = candMove[depth];
+		int cScore[] = candScore[depth];
+		long rest = pegs;
+		while(rest != 0)
+		{
+			int h = Long.numberOfTrailingZeros(rest);
+			rest &= rest - 1;
+			//Score the moves of this peg and keep them sorted ascending, ties in
+			//down/up/right/left order like the stable sort of the list version
+			int n = 0;
+			for(int m = topology.firstMove[h] ; m < topology.firstMove[h+1] ; m ++)
+			{
+				if(topology.isLegal(pegs, m))
+				{
+					int score = topology.countMovesAfter(pegs, legalMoves, m);
+					int k = n++;
+					while(k > 0 && cScore[k-1] > score)
 					{
-						if(testBoard[i][j-2]=='0' && testBoard[i][j-1]=='X')
-						{
-							//simulate the move
-							testBoard[i][j-2] = 'X';
-							testBoard[i][j] = '0';
-							testBoard[i][j-1] = '0';
-							int moves = getNumberOfMovesPossible(testBoard);
-							moveArray.add(new pair(moves, left));
-							testBoard[i][j-2] = '0';
-							testBoard[i][j] = 'X';
-							testBoard[i][j-1] = 'X';
-						}
-						else
-						{
-							moveArray.add(new pair(0, left));
-						}
+						cScore[k] = cScore[k-1];
+						cMove[k] = cMove[k-1];
+						k--;
 					}
-					else
-					{
-						moveArray.add(new pair(0, left));
-					}					
-					
-					//Arrange moves in ascending order of moves possible in the next stage
-					Collections.sort(moveArray, new KeyComparator());
-					
-					//Invoke DFS on this new sorted array, choosing the state with the minimum number
-					// of moves in the next state
-					for(pair move: moveArray)
+					cScore[k] = score;
+					cMove[k] = m;
+				}
+			}
+			for(int c = 0 ; c < n ; c ++)
+			{
+				if(cScore[c] > 0 || (nPegs-1 == 1))
+				{
+					int m = cMove[c];
+					if(pagodas != null && !pagodas.make(m))
 					{
-						if(move.x > 0 || (nPegs-1 == 1))
-						{
-							int pegInit = getPegNumber(i,j);;
-							int pegFinal = 0;
-							//Make the actual move
-							switch(move.y)
-							{
-									case up:	
-											if(i-2 >=0)
-											{
-												if(board[i-2][j]=='0' && board[i-1][j]=='X')
-												{
-													//manipulate the board after the move
-													board[i-2][j] = 'X';
-													board[i][j] = '0';
-													board[i-1][j] = '0';
-													pegFinal = getPegNumber(i-2, j);
-													moveStore.push(new pair(pegInit, pegFinal));
-													doDfs(nPegs-1, moveStore);
-													board[i-2][j] = '0';
-													board[i][j] = 'X';
-													board[i-1][j] = 'X';
-													moveStore.pop();
-												}
-											}
-											break;
-											
-								case down:	
-											if(i+2 < N)
-											{
-												if(board[i+2][j]=='0' && board[i+1][j]=='X')
-												{
-													//manipulate the board after the move
-													board[i+2][j] = 'X';
-													board[i][j] = '0';
-													board[i+1][j] = '0';
-													pegFinal = getPegNumber(i+2, j);
-													moveStore.push(new pair(pegInit, pegFinal));
-													doDfs(nPegs-1, moveStore);
-													board[i+2][j] = '0';
-													board[i][j] = 'X';
-													board[i+1][j] = 'X';
-													moveStore.pop();
-												}
-											}
-											break;
-											
-								case left:	
-											if(j-2 >=0)
-											{
-												if(board[i][j-2]=='0' && board[i][j-1]=='X')
-												{
-													//manipulate the board after the move
-													board[i][j-2] = 'X';
-													board[i][j] = '0';
-													board[i][j-1] = '0';
-													pegFinal = getPegNumber(i, j-2);
-													moveStore.push(new pair(pegInit, pegFinal));
-													doDfs(nPegs-1, moveStore);
-													board[i][j-2] = '0';
-													board[i][j] = 'X';
-													board[i][j-1] = 'X';
-													moveStore.pop();
-												}
-											}	
-											break;
-											
-								case right:	
-											if(j+2 < N)
-											{
-												if(board[i][j+2]=='0' && board[i][j+1]=='X')
-												{
-													//manipulate the board after the move
-													board[i][j+2] = 'X';
-													board[i][j] = '0';
-													board[i][j+1] = '0';
-													pegFinal = getPegNumber(i, j+2);
-													moveStore.push(new pair(pegInit, pegFinal));
-													doDfs(nPegs-1, moveStore);
-													board[i][j+2] = '0';
-													board[i][j] = 'X';
-													board[i][j+1] = 'X';
-													moveStore.pop();
-												}
-											}
-											break;
-							}
-						}
+						pagodaPrunes++;
+						pagodas.unmake(m);
+						continue;
 					}
-					
-					
+					pegs ^= topology.moveMask[m];
+					path[depth] = m;
+					doDfs(nPegs-1, cScore[c]);
+					pegs ^= topology.moveMask[m];
+					if(pagodas != null)
+						pagodas.unmake(m);
 				}
-
 			}
-			
 		}
-		return;
-}
+		//Every move from here has been tried without success
+		if(!done && !stopped && deadCache != null)
+			deadCache.add(canonical(pegs));
+	}
+
+	//Smallest image of a position under the symmetries of the board, the key of
+	//the dead-position cache. Symmetry does the English board faster
+	private long canonical(long pegs)
+	{
+		return topology == BoardTopology.ENGLISH ? Symmetry.canonical(pegs) : topology.canonical(pegs);
+	}
 
 	//A helper routine to copy a 2D array
 public void copyArray(char src[][], char dest[][])
@@ -450,28 +543,50 @@ static double getMemUsed() {
 
 	public static void main(String[] args) throws Exception {
 	
-		int N = 7;
+		//The board named by -Dpeg.board, english if it is not set
+		BoardTopology topology = BatchSolver.topology();
+		int N = topology.N;
 	    if(args.length!=2)  {
-	      System.err.println("usage: DFSIterative <filePath> <verbose boolean>");
+	      System.err.println("usage: AStarLauncher <filePath> <verbose boolean>");
 	      return;
 	    }
 	    String input[]= new String[N];
-	    FileInputStream fstream = new FileInputStream(args[0]);
-		 DataInputStream in = new DataInputStream(fstream);
+	    BoardReader in = new BoardReader(args[0], N);
+	    if(!in.next(input))
+	    {
+	    	System.err.println("No board in "+args[0]);
+	    	return;
+	    }
+	    in.close();
 		for(int i = 0 ; i < N ; i ++)
-		{
-			 input[i] = in.readLine();
 			 System.out.println(input[i]);
-		}
-		verbose = Integer.parseInt(args[1]);
-		AStarLauncher solver = new AStarLauncher(N, input);
+		AStarLauncher solver = new AStarLauncher(topology, input);
+		solver.verbose = Integer.parseInt(args[1]);
+		//Periodic progress reports, -Dpeg.progressMillis
+		ProgressSampler sampler = ProgressSampler.fromProperties(solver);
 		long startTime = System.currentTimeMillis();
 		solver.solveGame();
 		long endTime = System.currentTimeMillis();
+		if(sampler != null)
+			sampler.finish();
 		
 		int expandedNodes = solver.displaySolution();
 	    System.out.println("\n***STATS***");
 	    System.out.println(endTime - startTime+" milliSeconds");
-	    System.out.println("Memory used: "+ getMemUsed()+ " bytes\nNodes visited: "+expandedNodes);
+	    System.out.println("Memory used: "+ getMemUsed()+ " KB\nNodes visited: "+expandedNodes);
+	    System.out.println("Nodes per second: "+String.format("%.0f", solver.metrics.nodesPerSecond())+"\nMax depth: "+solver.maxDepth);
+	    if(solver.deadCache != null)
+	    	System.out.println("Cache hits: "+solver.deadCache.hits+"\nCache misses: "+solver.deadCache.misses);
+	    System.out.println("Pagoda prunes: "+solver.pagodaPrunes);
+	    if(solver.endgame != null)
+	    	System.out.println(solver.endgame.describe()+"\nEndgame lookups: "+solver.endgameLookups);
+	    if(solver.database != null)
+	    	System.out.println("Database hits: "+solver.database.hits+"\nDatabase misses: "+solver.database.misses);
+	    if(solver.rejected)
+	    	System.out.println("Rejected by the position class check");
+	    //A machine-readable line for -Dpeg.metrics=json or csv
+	    String line = solver.metrics.format();
+	    if(line != null)
+	    	System.out.println(line);
 	}
 }
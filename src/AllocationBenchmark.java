@@ -0,0 +1,58 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.lang.management.ManagementFactory;
+
+/*
+ * Measures how much heap AStarLauncher.solveGame allocates per expanded node,
+ * with the list-of-pairs search and with the allocation-free one, on the same
+ * board. Solvers are built before measuring so the cache table is not counted.
+ */
+public class AllocationBenchmark {
+
+	//Bytes allocated so far by the calling thread, also read by SolverBenchmark
+	static long allocatedBytes()
+	{
+		com.sun.management.ThreadMXBean bean =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	//Solves the board once in the given mode and prints the allocation figures
+	static void run(String input[], boolean allocationFree) throws Exception
+	{
+		AStarLauncher solver = new AStarLauncher(input.length, input);
+		solver.allocationFree = allocationFree;
+		long startBytes = allocatedBytes();
+		long startTime = System.nanoTime();
+		solver.solveGame();
+		long endTime = System.nanoTime();
+		long bytes = allocatedBytes() - startBytes;
+		int nodes = solver.expandedNodes;
+		double seconds = (endTime - startTime) / 1e9;
+		System.out.println((allocationFree ? "allocation-free " : "lists of pairs  ")
+			+ nodes + " nodes, " + bytes + " bytes, "
+			+ String.format("%.1f", (double) bytes / nodes) + " bytes/node, "
+			+ String.format("%.1f", bytes / seconds / (1024 * 1024)) + " MB/s");
+	}
+
+	public static void main(String[] args) throws Exception {
+		int N = 7;
+		if(args.length < 1)  {
+			System.err.println("usage: AllocationBenchmark <filePath> [rounds]");
+			return;
+		}
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		String input[] = new String[N];
+		BufferedReader in = new BufferedReader(new FileReader(args[0]));
+		for(int i = 0 ; i < N ; i ++)
+			input[i] = in.readLine();
+		in.close();
+		//Later rounds run on warmed up code
+		for(int r = 0 ; r < rounds ; r ++)
+		{
+			System.out.println("Round " + (r + 1));
+			run(input, false);
+			run(input, true);
+		}
+	}
+}
@@ -0,0 +1,130 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Stack;
+
+/*
+ * Solves every board of a file with one solver instance, so the JIT stays warm
+ * and the dead-position cache carries over from board to board. Boards are
+ * read with a large buffer and written one result line per board:
+ *
+ *   <index> SOLVED <nodes> <from>-<to> <from>-<to> ...   (first move first)
+ *   <index> NO_SOLUTION <nodes>
+ *   <index> BUDGET_EXCEEDED <nodes>                      (undecided)
+ *
+ * Each board can be given a time limit in milliseconds (-Dpeg.timeoutMillis) and
+ * a budget of expanded nodes (-Dpeg.maxNodes). A board that runs out of either
+ * is reported as BUDGET_EXCEEDED, with the nodes expanded so far.
+ *
+ * Boards are English unless -Dpeg.board names another BoardTopology (european,
+ * triangular, cross:9, ...). The solver is DFSLauncher, AStarLauncher for
+ * astar or MinMoveSolver for minmoves. The last solves the English board only.
+ *
+ * With -Dpeg.metrics=json or csv, the metrics of every solve are also written to
+ * <outputFile>.metrics, one line per board in the same order.
+ */
+public class BatchSolver {
+
+	//Formats the result of the last solve as one line
+	static String resultLine(int index, PegSolver solver)
+	{
+		StringBuilder line = new StringBuilder();
+		line.append(index);
+		if(solver.getResult() == SolveResult.SOLVED)
+		{
+			line.append(" SOLVED ").append(solver.getExpandedNodes());
+			Stack<pair> moves = solver.getMoves();
+			for(int d = 0 ; d < moves.size() ; d ++)
+			{
+				pair move = moves.get(d);
+				line.append(' ').append(move.x).append('-').append(move.y);
+			}
+		}
+		else if(solver.getResult() == SolveResult.BUDGET_EXCEEDED)
+		{
+			line.append(" BUDGET_EXCEEDED ").append(solver.getExpandedNodes());
+		}
+		else
+		{
+			line.append(" NO_SOLUTION ").append(solver.getExpandedNodes());
+		}
+		return line.toString();
+	}
+
+	//The board named by -Dpeg.board, english if it is not set
+	static BoardTopology topology()
+	{
+		return BoardTopology.byName(System.getProperty("peg.board", "english"));
+	}
+
+	//A solver of the given kind (dfs, astar or minmoves) loaded with a first board
+	static PegSolver newSolver(BoardTopology topology, String kind, String input[])
+	{
+		if(kind.equals("minmoves") && topology != BoardTopology.ENGLISH)
+			throw new IllegalArgumentException(kind + " only solves the english board");
+		if(kind.equals("minmoves"))
+			return new MinMoveSolver(input);
+		if(kind.equals("astar"))
+			return new AStarLauncher(topology, input);
+		return new DFSLauncher(topology, input);
+	}
+
+	//The metrics file of an output file, or null if -Dpeg.metrics is not set
+	static BufferedWriter openMetrics(String outputFile) throws IOException
+	{
+		String format = System.getProperty("peg.metrics");
+		if(format == null)
+			return null;
+		BufferedWriter metrics = new BufferedWriter(new FileWriter(outputFile + ".metrics"), 1 << 16);
+		if(format.equals("csv"))
+		{
+			metrics.write(SolverMetrics.CSV_HEADER);
+			metrics.newLine();
+		}
+		return metrics;
+	}
+
+	public static void main(String[] args) throws Exception {
+		if(args.length < 2 || args.length > 3)  {
+			System.err.println("usage: BatchSolver <inputFile> <outputFile> [dfs|astar|minmoves]");
+			return;
+		}
+		String kind = args.length > 2 ? args[2] : "dfs";
+		BoardTopology topology = topology();
+		int N = topology.N;
+		BoardReader in = new BoardReader(args[0], N);
+		BufferedWriter out = new BufferedWriter(new FileWriter(args[1]), 1 << 20);
+		BufferedWriter metrics = openMetrics(args[1]);
+		long timeoutMillis = Long.getLong("peg.timeoutMillis", 0);
+		long maxNodes = Long.getLong("peg.maxNodes", 0);
+		String input[] = new String[N];
+		PegSolver solver = null;
+		int boards = 0;
+		long startTime = System.currentTimeMillis();
+		while(in.next(input))
+		{
+			if(solver == null)
+				solver = newSolver(topology, kind, input);
+			else
+				solver.reset(input);
+			solver.solveGame(timeoutMillis > 0 ? System.currentTimeMillis() + timeoutMillis : 0, maxNodes);
+			out.write(resultLine(boards, solver));
+			out.newLine();
+			if(metrics != null)
+			{
+				metrics.write(solver.getMetrics().format());
+				metrics.newLine();
+			}
+			boards++;
+		}
+		long endTime = System.currentTimeMillis();
+		in.close();
+		out.close();
+		if(metrics != null)
+			metrics.close();
+		System.out.println(boards+" boards in "+(endTime - startTime)+" milliSeconds");
+		EndgameTable endgame = EndgameTable.fromProperties();
+		if(endgame != null)
+			System.out.println(endgame.describe());
+	}
+}
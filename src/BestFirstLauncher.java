@@ -0,0 +1,246 @@
+import java.util.Stack;
+
+/*
+ * A best-first search, next to the ordered DFS of AStarLauncher. Open nodes live
+ * in a binary heap of longs, each one a board in the low bits under its
+ * priority: f = g + h first, then the heuristic's penalty, then depth, deeper
+ * first. Every jump costs one and removes one peg, so f is the same constant for
+ * every node and the order comes from the penalty alone: this is greedy
+ * best-first search, not A*, and it finds a line, not a shortest one.
+ * Every position reached is recorded under its canonical key with the move that
+ * produced it, which serves as the closed set and as the parent links for
+ * rebuilding the winning line. When the open list outgrows maxOpen, its worse
+ * half is dropped, and when the closed set outgrows maxReached, only the
+ * ancestors of open nodes are kept. Both bound memory, the first at the cost of
+ * completeness, the second by expanding some positions again.
+ *
+ * Any BoardTopology can be searched whose holes leave room for the 20 bits of
+ * the priority in a long, up to 44 holes.
+ */
+public class BestFirstLauncher {
+	//Bits of the priority above the board
+	private static final int PRIORITY_BITS = 20;
+	//Parent link of the start position
+	private static final int ROOT = -1;
+
+	//The board searched, its holes, jumps and symmetries
+	private BoardTopology topology;
+	//Bits below the priority that hold the board
+	private int boardBits;
+	//Mask of those bits
+	private long boardMask;
+
+	//The start position, one bit per hole
+	private long start;
+	private int numPegs;
+	private Heuristic heuristic;
+	//Largest open list kept before pruning it
+	private int maxOpen;
+	//Largest closed set kept before evicting from it
+	private int maxReached;
+	private LongMinHeap open;
+	//canonical key of every position reached -> the move that produced it
+	private LongIntHashMap reached;
+	//Indicates if a valid path is found
+	private boolean done;
+	//The winning line as move ids, first move first
+	private int solution[];
+	int expandedNodes = 0;
+	//Open nodes dropped to stay under maxOpen
+	long prunedNodes = 0;
+	//Closed positions forgotten to stay under maxReached
+	long evictedNodes = 0;
+
+	//A search of the English board
+	public BestFirstLauncher(String boardState[], Heuristic heuristic)
+	{
+		this(BoardTopology.ENGLISH, boardState, heuristic);
+	}
+
+	//A search of any board with at most 44 holes
+	public BestFirstLauncher(BoardTopology topology, String boardState[], Heuristic heuristic)
+	{
+		if(topology.holes + PRIORITY_BITS > 64)
+			throw new IllegalArgumentException("The " + topology.name + " board has too many holes for BestFirstLauncher");
+		this.topology = topology;
+		boardBits = topology.holes;
+		boardMask = (1L << boardBits) - 1;
+		char board[][] = new char[topology.N][topology.N];
+		for(int i = 0 ; i < topology.N ; i ++)
+			for(int j = 0 ; j < topology.N ; j ++)
+				board[i][j] = j < boardState[i].length() ? boardState[i].charAt(j) : '-';
+		start = topology.fromBoard(board);
+		numPegs = Long.bitCount(start);
+		this.heuristic = heuristic;
+		maxOpen = Integer.getInteger("peg.maxOpen", 1 << 22);
+		maxReached = Integer.getInteger("peg.maxReached", 1 << 23);
+		open = new LongMinHeap(1024);
+		reached = new LongIntHashMap(1024);
+	}
+
+	//Packs a board and its priority into one heap entry
+	private long encode(long pegs, int g)
+	{
+		int nPegs = Long.bitCount(pegs);
+		long f = g + (nPegs - 1);
+		long priority = (f << 14) | ((long) heuristic.penalty(pegs) << 6) | (63 - g);
+		return (priority << boardBits) | pegs;
+	}
+
+	//Runs the search, returning true if a winning line was found
+	public boolean solveGame()
+	{
+		//Positions outside the class of the centre finish cannot be won
+		if(!topology.canReachTarget(start))
+			return false;
+		open.push(encode(start, 0));
+		reached.put(canonical(start), ROOT);
+		while(open.size() > 0)
+		{
+			long pegs = open.pop() & boardMask;
+			int nPegs = Long.bitCount(pegs);
+			int g = numPegs - nPegs;
+			expandedNodes++;
+			if(nPegs == 1)
+			{
+				if(topology.isGoal(pegs))
+				{
+					done = true;
+					buildSolution(pegs, g);
+					return true;
+				}
+				continue;
+			}
+			for(int m = 0 ; m < topology.moves ; m ++)
+			{
+				if(!topology.isLegal(pegs, m))
+					continue;
+				long child = pegs ^ topology.moveMask[m];
+				long key = canonical(child);
+				if(reached.containsKey(key))
+					continue;
+				reached.put(key, m);
+				open.push(encode(child, g + 1));
+			}
+			if(open.size() > maxOpen)
+			{
+				prunedNodes += open.size() - maxOpen / 2;
+				open.truncate(maxOpen / 2);
+			}
+			if(reached.size() > maxReached)
+				evictClosed();
+		}
+		return false;
+	}
+
+	//Rebuilds the closed set from the parent links of the open nodes, dropping
+	//every expanded position that no open node descends from. If the open list
+	//alone needs most of the budget, its worse half goes first
+	private void evictClosed()
+	{
+		while(true)
+		{
+			LongIntHashMap kept = new LongIntHashMap(maxReached / 2);
+			for(int i = 0 ; i < open.size() ; i ++)
+			{
+				long pegs = open.get(i) & boardMask;
+				while(true)
+				{
+					long key = canonical(pegs);
+					if(kept.containsKey(key))
+						break;
+					int m = reached.get(key, ROOT);
+					kept.put(key, m);
+					if(m == ROOT)
+						break;
+					pegs ^= topology.moveMask[m];
+				}
+			}
+			if(kept.size() <= maxReached / 2 || open.size() <= 1)
+			{
+				evictedNodes += reached.size() - kept.size();
+				reached = kept;
+				return;
+			}
+			prunedNodes += open.size() - open.size() / 2;
+			open.truncate(open.size() / 2);
+		}
+	}
+
+	//Follows the parent links back from the goal
+	private void buildSolution(long pegs, int length)
+	{
+		solution = new int[length];
+		for(int d = length - 1 ; d >= 0 ; d --)
+		{
+			int m = reached.get(canonical(pegs), ROOT);
+			solution[d] = m;
+			pegs ^= topology.moveMask[m];
+		}
+	}
+
+	//Key of the closed set, as in DFSLauncher
+	private long canonical(long pegs)
+	{
+		return topology == BoardTopology.ENGLISH ? Symmetry.canonical(pegs) : topology.canonical(pegs);
+	}
+
+	//Displays the winning path the way the launchers do, last move first
+	public void displaySolution()
+	{
+		Stack<pair> moves = new Stack<pair>();
+		if(!done)
+		{
+			System.out.print("No Winning path on this configuration");
+			return;
+		}
+		for(int d = 0 ; d < solution.length ; d ++)
+			moves.push(new pair(topology.moveFrom[solution[d]], topology.moveTo[solution[d]]));
+		while(!moves.empty())
+		{
+			pair top = moves.pop();
+			System.out.print("( "+top.x+","+top.y+" )  ");
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		//The board named by -Dpeg.board, english if it is not set
+		BoardTopology topology = BatchSolver.topology();
+		int N = topology.N;
+		if(args.length < 1 || args.length > 2)  {
+			System.err.println("usage: BestFirstLauncher <filePath> [moves|centre]");
+			return;
+		}
+		Heuristic heuristic = args.length > 1 && args[1].equals("centre")
+			? new CentreDistanceHeuristic(topology) : new MovesAvailableHeuristic(topology);
+		String input[] = new String[N];
+		BoardReader in = new BoardReader(args[0], N);
+		if(!in.next(input))
+		{
+			System.err.println("No board in "+args[0]);
+			return;
+		}
+		in.close();
+		for(int i = 0 ; i < N ; i ++)
+			System.out.println(input[i]);
+
+		BestFirstLauncher solver = new BestFirstLauncher(topology, input, heuristic);
+		long startTime = System.currentTimeMillis();
+		solver.solveGame();
+		long endTime = System.currentTimeMillis();
+		solver.displaySolution();
+		System.out.println("\n***STATS***");
+		System.out.println(endTime - startTime+" milliSeconds");
+		System.out.println("Nodes visited: "+solver.expandedNodes+"\nOpen nodes pruned: "+solver.prunedNodes
+			+"\nClosed nodes evicted: "+solver.evictedNodes);
+
+		//The plain DFS on the same input, for comparison
+		DFSLauncher dfs = new DFSLauncher(topology, input);
+		startTime = System.currentTimeMillis();
+		dfs.solveGame();
+		endTime = System.currentTimeMillis();
+		System.out.println("***doDfs on the same input***");
+		System.out.println(endTime - startTime+" milliSeconds");
+		System.out.println("Nodes visited: "+dfs.expandedNodes);
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * A 64-bit representation of the 33-hole English board. Bit k of the long is set
+ * when hole k (numbered exactly as getPegNumber numbers them) holds a peg.
+ * Every legal jump on the board is precomputed as a (from, over, to) triple, so
+ * testing a jump costs two ANDs and making or unmaking it is a single XOR.
+ *
+ * The tables are those of BoardTopology.ENGLISH, kept here as static finals for
+ * the searches written for this board.
+ */
+class BitBoard {
+	//The board these tables describe
+	static final BoardTopology TOPOLOGY = BoardTopology.ENGLISH;
+	//Size of the grid the cross is laid out on
+	static final int N = 7;
+	//Number of holes on the board
+	static final int HOLES = 33;
+	//Hole number of every (i,j) cell, -1 for cells outside the cross
+	static final int HOLE[][] = TOPOLOGY.hole;
+	//Row and column of every hole
+	static final int ROW[] = TOPOLOGY.row;
+	static final int COL[] = TOPOLOGY.col;
+	//The target hole board[N/2][N/2] and its mask
+	static final int CENTRE = TOPOLOGY.target;
+	static final long CENTRE_MASK = 1L << CENTRE;
+	//Mask with a bit set for every hole
+	static final long ALL = (1L << HOLES) - 1;
+
+	//Direction numbering, in the order the solvers have always tried them
+	static final int DOWN = 0;
+	static final int UP = 1;
+	static final int RIGHT = 2;
+	static final int LEFT = 3;
+	static final int DI[] = TOPOLOGY.di;
+	static final int DJ[] = TOPOLOGY.dj;
+
+	//Jump tables. Moves are ordered by from-hole and then by direction, so
+	//walking them in order is the same as the row-major board scan
+	static final int MOVES = TOPOLOGY.moves;
+	static final int MOVE_FROM[] = TOPOLOGY.moveFrom;
+	static final int MOVE_OVER[] = TOPOLOGY.moveOver;
+	static final int MOVE_TO[] = TOPOLOGY.moveTo;
+	static final int MOVE_DIR[] = TOPOLOGY.moveDir;
+	//pegs that must be present for a move: from and over
+	static final long MOVE_NEED[] = TOPOLOGY.moveNeed;
+	//hole that must be empty for a move: to
+	static final long MOVE_EMPTY[] = TOPOLOGY.moveEmpty;
+	//from, over and to together. XOR-ing it makes or unmakes the move
+	static final long MOVE_MASK[] = TOPOLOGY.moveMask;
+	//moves out of hole h are FIRST_MOVE[h] .. FIRST_MOVE[h+1]-1
+	static final int FIRST_MOVE[] = TOPOLOGY.firstMove;
+	//moves that share a hole with move m, the only ones whose legality m can change
+	static final int AFFECTED[][] = TOPOLOGY.affected;
+
+	//Reads the pegs of a char board ('X' is a peg) into a bitboard
+	static long fromBoard(char board[][])
+	{
+		return TOPOLOGY.fromBoard(board);
+	}
+
+	//Writes a bitboard back into the holes of a char board, leaving other cells alone
+	static void toBoard(long pegs, char board[][])
+	{
+		TOPOLOGY.toBoard(pegs, board);
+	}
+
+	//Checks whether move m can be made on the given position
+	static boolean isLegal(long pegs, int m)
+	{
+		return (pegs & MOVE_NEED[m]) == MOVE_NEED[m] && (pegs & MOVE_EMPTY[m]) == 0;
+	}
+
+	//Number of legal jumps on the given position
+	static int countMoves(long pegs)
+	{
+		return TOPOLOGY.countMoves(pegs);
+	}
+
+	//Number of legal jumps after making move m on a position that has numMoves
+	//legal jumps. Only the moves touching the three holes of m are rechecked
+	static int countMovesAfter(long pegs, int numMoves, int m)
+	{
+		return TOPOLOGY.countMovesAfter(pegs, numMoves, m);
+	}
+}
@@ -0,0 +1,48 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+
+/*
+ * Reads boards of N lines each from a text file. Blank lines between boards
+ * are skipped, so a file may hold one board or a long stream of them, and
+ * lines shorter than N are padded with '-' (no hole).
+ */
+class BoardReader {
+	//Large buffer so that streaming many boards is not bound by read calls
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private BufferedReader in;
+	private int N;
+
+	public BoardReader(String filePath, int dimension) throws IOException
+	{
+		in = new BufferedReader(new FileReader(filePath), BUFFER_SIZE);
+		N = dimension;
+	}
+
+	//Fills boardState with the next board. Returns false at the end of the file
+	public boolean next(String boardState[]) throws IOException
+	{
+		String line = in.readLine();
+		while(line != null && line.trim().length() == 0)
+			line = in.readLine();
+		if(line == null)
+			return false;
+		for(int i = 0 ; i < N ; i ++)
+		{
+			if(line == null)
+				throw new IOException("Board cut short after " + i + " lines");
+			while(line.length() < N)
+				line = line + "-";
+			boardState[i] = line;
+			if(i + 1 < N)
+				line = in.readLine();
+		}
+		return true;
+	}
+
+	public void close() throws IOException
+	{
+		in.close();
+	}
+}
@@ -0,0 +1,447 @@
+/*
+ * The geometry of a peg solitaire board: which cells of an N x N grid are holes,
+ * how the holes are numbered, which jumps exist, which rotations and reflections
+ * map the board onto itself, and where the last peg has to end. Holes are
+ * numbered row by row, and bit k of a position is set when hole k holds a peg,
+ * so a board of up to 63 holes fits in a long.
+ *
+ * Jumps go two cells along a direction, over the cell between. Square boards
+ * jump along rows and columns. The triangular board is laid out in the lower
+ * left half of the grid, row i holding i + 1 holes, and also jumps along the
+ * diagonal that stays in it. Moves are ordered by from-hole and then by the
+ * order of the directions, the same order BitBoard has always used for the
+ * English board, whose tables come from ENGLISH.
+ */
+class BoardTopology {
+	//Jump offsets along rows and columns: down, up, right, left
+	static final int SQUARE_DI[] = {2, -2, 0, 0};
+	static final int SQUARE_DJ[] = {0, 0, 2, -2};
+	//The same and the two directions of the diagonal of a triangular grid
+	static final int TRIANGLE_DI[] = {2, -2, 0, 0, 2, -2};
+	static final int TRIANGLE_DJ[] = {0, 0, 2, -2, 2, -2};
+	//Target of a board where the last peg may end in any hole
+	static final int ANY_HOLE = -1;
+
+	//The 33-hole English cross, finishing in the centre
+	static final BoardTopology ENGLISH = cross("english", 7, 3);
+	//The 37-hole European (French) board, finishing in the centre
+	static final BoardTopology EUROPEAN = new BoardTopology("european", new String[] {
+		"--XXX--",
+		"-XXXXX-",
+		"XXXXXXX",
+		"XXXXXXX",
+		"XXXXXXX",
+		"-XXXXX-",
+		"--XXX--"
+	}, SQUARE_DI, SQUARE_DJ, 3, 3);
+	//The 15-hole triangle, finishing anywhere
+	static final BoardTopology TRIANGULAR = triangle("triangular", 5);
+
+	final String name;
+	//Size of the grid the board is laid out on
+	final int N;
+	final int holes;
+	//Hole number of every (i,j) cell, -1 for cells outside the board
+	final int hole[][];
+	final int row[];
+	final int col[];
+	//Hole the last peg has to end in, or ANY_HOLE
+	final int target;
+	//Mask with a bit set for every hole
+	final long all;
+	final int di[];
+	final int dj[];
+
+	//Jump tables, as in BitBoard
+	final int moves;
+	final int moveFrom[];
+	final int moveOver[];
+	final int moveTo[];
+	final int moveDir[];
+	final long moveNeed[];
+	final long moveEmpty[];
+	final long moveMask[];
+	//moves out of hole h are firstMove[h] .. firstMove[h+1]-1
+	final int firstMove[];
+	//moves that share a hole with move m
+	final int affected[][];
+	//Move id by (from hole, to hole), -1 where there is no such jump
+	private final int moveId[][];
+
+	//Holes with (i+j) mod 3 == k and with (i-j) mod 3 == k, for PositionClass
+	private final long classSum[] = new long[3];
+	private final long classDiff[] = new long[3];
+
+	//Rotations and reflections that map the board, its jumps and its target onto
+	//themselves. symmetry[t][h] is the hole that hole h is sent to, and t = 0 is the
+	//identity
+	final int symmetry[][];
+	//Image of every byte value of every chunk of a position, per symmetry: the
+	//image of value v of chunk c is at c * 256 + v. All 8 bytes of a long have
+	//a chunk, so that a transform is 8 table reads with no loop
+	final long image[][];
+
+	//Builds a board from a layout of N rows, '-' for cells that are not holes.
+	//targetI and targetJ give the target hole, or are -1 for any hole
+	public BoardTopology(String name, String layout[], int di[], int dj[], int targetI, int targetJ)
+	{
+		this.name = name;
+		this.di = di;
+		this.dj = dj;
+		N = layout.length;
+		hole = new int[N][N];
+		int n = 0;
+		for(int i = 0 ; i < N ; i ++)
+		{
+			for(int j = 0 ; j < N ; j ++)
+			{
+				if(j < layout[i].length() && layout[i].charAt(j) != '-')
+					hole[i][j] = n++;
+				else
+					hole[i][j] = -1;
+			}
+		}
+		if(n > 63)
+			throw new IllegalArgumentException(name + " has " + n + " holes, at most 63 fit a position");
+		holes = n;
+		all = (1L << holes) - 1;
+		row = new int[holes];
+		col = new int[holes];
+		for(int i = 0 ; i < N ; i ++)
+		{
+			for(int j = 0 ; j < N ; j ++)
+			{
+				if(hole[i][j] >= 0)
+				{
+					row[hole[i][j]] = i;
+					col[hole[i][j]] = j;
+				}
+			}
+		}
+		target = targetI < 0 ? ANY_HOLE : holeAt(targetI, targetJ);
+		for(int h = 0 ; h < holes ; h ++)
+		{
+			classSum[(row[h] + col[h]) % 3] |= 1L << h;
+			classDiff[(row[h] - col[h] + 3 * N) % 3] |= 1L << h;
+		}
+
+		int from[] = new int[holes * di.length];
+		int over[] = new int[holes * di.length];
+		int to[] = new int[holes * di.length];
+		int dir[] = new int[holes * di.length];
+		firstMove = new int[holes + 1];
+		int m = 0;
+		for(int h = 0 ; h < holes ; h ++)
+		{
+			firstMove[h] = m;
+			for(int d = 0 ; d < di.length ; d ++)
+			{
+				int i = row[h] + di[d];
+				int j = col[h] + dj[d];
+				if(!isHole(i, j) || !isHole(row[h] + di[d]/2, col[h] + dj[d]/2))
+					continue;
+				from[m] = h;
+				over[m] = hole[row[h] + di[d]/2][col[h] + dj[d]/2];
+				to[m] = hole[i][j];
+				dir[m] = d;
+				m++;
+			}
+		}
+		firstMove[holes] = m;
+		moves = m;
+		moveFrom = new int[moves];
+		moveOver = new int[moves];
+		moveTo = new int[moves];
+		moveDir = new int[moves];
+		moveNeed = new long[moves];
+		moveEmpty = new long[moves];
+		moveMask = new long[moves];
+		moveId = new int[holes][holes];
+		for(int f = 0 ; f < holes ; f ++)
+			for(int t = 0 ; t < holes ; t ++)
+				moveId[f][t] = -1;
+		for(m = 0 ; m < moves ; m ++)
+		{
+			moveFrom[m] = from[m];
+			moveOver[m] = over[m];
+			moveTo[m] = to[m];
+			moveDir[m] = dir[m];
+			moveNeed[m] = (1L << from[m]) | (1L << over[m]);
+			moveEmpty[m] = 1L << to[m];
+			moveMask[m] = moveNeed[m] | moveEmpty[m];
+			moveId[from[m]][to[m]] = m;
+		}
+		affected = new int[moves][];
+		int shared[] = new int[moves];
+		for(m = 0 ; m < moves ; m ++)
+		{
+			int k = 0;
+			for(int o = 0 ; o < moves ; o ++)
+			{
+				if((moveMask[m] & moveMask[o]) != 0)
+					shared[k++] = o;
+			}
+			affected[m] = new int[k];
+			System.arraycopy(shared, 0, affected[m], 0, k);
+		}
+
+		symmetry = findSymmetries();
+		int chunks = (holes + 7) / 8;
+		image = new long[symmetry.length][8 * 256];
+		for(int t = 0 ; t < symmetry.length ; t ++)
+		{
+			for(int c = 0 ; c < chunks ; c ++)
+			{
+				for(int v = 0 ; v < 256 ; v ++)
+				{
+					long bits = 0;
+					for(int b = 0 ; b < 8 ; b ++)
+					{
+						int h = c * 8 + b;
+						if((v & (1 << b)) != 0 && h < holes)
+							bits |= 1L << symmetry[t][h];
+					}
+					image[t][c * 256 + v] = bits;
+				}
+			}
+		}
+	}
+
+	//An n x n cross with arms width holes wide, finishing in the centre
+	static BoardTopology cross(String name, int n, int width)
+	{
+		if(n % 2 == 0 || width % 2 == 0 || width > n)
+			throw new IllegalArgumentException("A cross needs an odd size and an odd arm width up to the size");
+		String layout[] = new String[n];
+		int low = (n - width) / 2;
+		int high = low + width - 1;
+		for(int i = 0 ; i < n ; i ++)
+		{
+			StringBuilder line = new StringBuilder();
+			for(int j = 0 ; j < n ; j ++)
+				line.append((i >= low && i <= high) || (j >= low && j <= high) ? 'X' : '-');
+			layout[i] = line.toString();
+		}
+		return new BoardTopology(name, layout, SQUARE_DI, SQUARE_DJ, n / 2, n / 2);
+	}
+
+	//A triangle of n rows, finishing anywhere
+	static BoardTopology triangle(String name, int n)
+	{
+		String layout[] = new String[n];
+		for(int i = 0 ; i < n ; i ++)
+		{
+			StringBuilder line = new StringBuilder();
+			for(int j = 0 ; j < n ; j ++)
+				line.append(j <= i ? 'X' : '-');
+			layout[i] = line.toString();
+		}
+		return new BoardTopology(name, layout, TRIANGLE_DI, TRIANGLE_DJ, -1, -1);
+	}
+
+	//A board by name: english, european, triangular, triangular:<rows>,
+	//cross:<size> (arms 3 wide) or cross:<size>:<width>
+	static BoardTopology byName(String name)
+	{
+		String parts[] = name.split(":");
+		if(name.equals("english"))
+			return ENGLISH;
+		if(name.equals("european"))
+			return EUROPEAN;
+		if(name.equals("triangular"))
+			return TRIANGULAR;
+		if(parts[0].equals("triangular") && parts.length == 2)
+			return triangle(name, Integer.parseInt(parts[1]));
+		if(parts[0].equals("cross") && (parts.length == 2 || parts.length == 3))
+			return cross(name, Integer.parseInt(parts[1]), parts.length == 3 ? Integer.parseInt(parts[2]) : 3);
+		throw new IllegalArgumentException("Unknown board " + name);
+	}
+
+	boolean isHole(int i, int j)
+	{
+		return i >= 0 && i < N && j >= 0 && j < N && hole[i][j] >= 0;
+	}
+
+	//Hole number of cell (i,j)
+	int holeAt(int i, int j)
+	{
+		if(!isHole(i, j))
+			throw new IllegalArgumentException("No hole at (" + i + "," + j + ") on the " + name + " board");
+		return hole[i][j];
+	}
+
+	//Id of the jump from one hole to another, -1 if there is none
+	int moveId(int from, int to)
+	{
+		return moveId[from][to];
+	}
+
+	//The grid maps that are candidates for symmetries: the 8 rotations and
+	//reflections of a square, or the 6 of a triangle
+	private int[] candidate(int t, int i, int j)
+	{
+		int n = N - 1;
+		if(di.length == 6)
+		{
+			//Coordinates along the three sides, which the symmetries permute
+			int a = j;
+			int b = i - j;
+			int c = n - i;
+			int p[][] = {{a, b, c}, {b, c, a}, {c, a, b}, {b, a, c}, {a, c, b}, {c, b, a}};
+			return new int[] {n - p[t][2], p[t][0]};
+		}
+		switch(t)
+		{
+			case 0: return new int[] {i, j};
+			case 1: return new int[] {j, n - i};
+			case 2: return new int[] {n - i, n - j};
+			case 3: return new int[] {n - j, i};
+			case 4: return new int[] {i, n - j};
+			case 5: return new int[] {n - i, j};
+			case 6: return new int[] {j, i};
+			default: return new int[] {n - j, n - i};
+		}
+	}
+
+	//Keeps the candidate maps that send every hole to a hole, every jump to a
+	//jump and the target to itself
+	private int[][] findSymmetries()
+	{
+		int count = di.length == 6 ? 6 : 8;
+		int found[][] = new int[count][];
+		int n = 0;
+		for(int t = 0 ; t < count ; t ++)
+		{
+			int map[] = new int[holes];
+			boolean valid = true;
+			for(int h = 0 ; h < holes && valid ; h ++)
+			{
+				int cell[] = candidate(t, row[h], col[h]);
+				valid = isHole(cell[0], cell[1]);
+				if(valid)
+					map[h] = hole[cell[0]][cell[1]];
+			}
+			for(int m = 0 ; m < moves && valid ; m ++)
+				valid = moveId[map[moveFrom[m]]][map[moveTo[m]]] >= 0;
+			if(valid && target != ANY_HOLE)
+				valid = map[target] == target;
+			if(valid)
+				found[n++] = map;
+		}
+		int symmetries[][] = new int[n][];
+		System.arraycopy(found, 0, symmetries, 0, n);
+		return symmetries;
+	}
+
+	//Image of a position under symmetry t
+	long transform(int t, long pegs)
+	{
+		long table[] = image[t];
+		return table[(int)pegs & 0xFF]
+			| table[256 + ((int)(pegs >>> 8) & 0xFF)]
+			| table[512 + ((int)(pegs >>> 16) & 0xFF)]
+			| table[768 + ((int)(pegs >>> 24) & 0xFF)]
+			| table[1024 + ((int)(pegs >>> 32) & 0xFF)]
+			| table[1280 + ((int)(pegs >>> 40) & 0xFF)]
+			| table[1536 + ((int)(pegs >>> 48) & 0xFF)]
+			| table[1792 + ((int)(pegs >>> 56) & 0xFF)];
+	}
+
+	//Smallest image of a position under the symmetries of the board
+	long canonical(long pegs)
+	{
+		long best = pegs;
+		for(int t = 1 ; t < image.length ; t ++)
+		{
+			long other = transform(t, pegs);
+			if(other < best)
+				best = other;
+		}
+		return best;
+	}
+
+	//Reads the pegs of a char board ('X' is a peg)
+	long fromBoard(char board[][])
+	{
+		long pegs = 0;
+		for(int h = 0 ; h < holes ; h ++)
+		{
+			if(board[row[h]][col[h]]=='X')
+				pegs |= 1L << h;
+		}
+		return pegs;
+	}
+
+	//Writes a position back into the holes of a char board, leaving other cells alone
+	void toBoard(long pegs, char board[][])
+	{
+		for(int h = 0 ; h < holes ; h ++)
+			board[row[h]][col[h]] = (pegs & (1L << h)) != 0 ? 'X' : '0';
+	}
+
+	boolean isLegal(long pegs, int m)
+	{
+		return (pegs & moveNeed[m]) == moveNeed[m] && (pegs & moveEmpty[m]) == 0;
+	}
+
+	//Number of legal jumps on a position
+	int countMoves(long pegs)
+	{
+		int numMoves = 0;
+		for(int m = 0 ; m < moves ; m ++)
+		{
+			if((pegs & moveNeed[m]) == moveNeed[m] && (pegs & moveEmpty[m]) == 0)
+				numMoves++;
+		}
+		return numMoves;
+	}
+
+	//Number of legal jumps after making move m on a position that has numMoves
+	//legal jumps. Only the moves touching the three holes of m are rechecked
+	int countMovesAfter(long pegs, int numMoves, int m)
+	{
+		long next = pegs ^ moveMask[m];
+		int shared[] = affected[m];
+		for(int a = 0 ; a < shared.length ; a ++)
+		{
+			long need = moveNeed[shared[a]];
+			long empty = moveEmpty[shared[a]];
+			if((pegs & need) == need && (pegs & empty) == 0)
+				numMoves--;
+			if((next & need) == need && (next & empty) == 0)
+				numMoves++;
+		}
+		return numMoves;
+	}
+
+	//Whether the position is in the same class as a single peg in the target,
+	//by the invariant of PositionClass. Only square boards with a fixed target
+	//are checked, other positions pass
+	boolean canReachTarget(long pegs)
+	{
+		if(di.length != 4 || target == ANY_HOLE)
+			return true;
+		return positionClass(pegs) == positionClass(1L << target);
+	}
+
+	//Class of a position, 0 to 15: the parity differences of the pegs on the
+	//holes of each label, as explained in PositionClass
+	int positionClass(long pegs)
+	{
+		int s0 = Long.bitCount(pegs & classSum[0]) & 1;
+		int s1 = Long.bitCount(pegs & classSum[1]) & 1;
+		int s2 = Long.bitCount(pegs & classSum[2]) & 1;
+		int d0 = Long.bitCount(pegs & classDiff[0]) & 1;
+		int d1 = Long.bitCount(pegs & classDiff[1]) & 1;
+		int d2 = Long.bitCount(pegs & classDiff[2]) & 1;
+		return (s0 ^ s1) | (s1 ^ s2) << 1 | (d0 ^ d1) << 2 | (d1 ^ d2) << 3;
+	}
+
+	//Whether a position is the finish: one peg, in the target hole if there is one
+	boolean isGoal(long pegs)
+	{
+		if(Long.bitCount(pegs) != 1)
+			return false;
+		return target == ANY_HOLE || pegs == 1L << target;
+	}
+}
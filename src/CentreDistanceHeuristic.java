@@ -0,0 +1,40 @@
+/*
+ * Prefers compact positions: the penalty is the total Manhattan distance from
+ * every peg to the centre hole, the target of the board if it has one.
+ */
+class CentreDistanceHeuristic implements Heuristic {
+	//Distance of every hole to the centre
+	private int distance[];
+
+	//The heuristic for the English board
+	public CentreDistanceHeuristic()
+	{
+		this(BoardTopology.ENGLISH);
+	}
+
+	//The heuristic for any board
+	public CentreDistanceHeuristic(BoardTopology topology)
+	{
+		int ci = topology.N / 2;
+		int cj = topology.N / 2;
+		if(topology.target != BoardTopology.ANY_HOLE)
+		{
+			ci = topology.row[topology.target];
+			cj = topology.col[topology.target];
+		}
+		distance = new int[topology.holes];
+		for(int h = 0 ; h < topology.holes ; h ++)
+			distance[h] = Math.abs(topology.row[h] - ci) + Math.abs(topology.col[h] - cj);
+	}
+
+	public int penalty(long pegs)
+	{
+		int sum = 0;
+		while(pegs != 0)
+		{
+			sum += distance[Long.numberOfTrailingZeros(pegs)];
+			pegs &= pegs - 1;
+		}
+		return Math.min(sum, MAX_PENALTY);
+	}
+}
@@ -0,0 +1,197 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.util.ArrayDeque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * BatchSolver spread over a pool of worker threads. The boards of the input file
+ * are independent, so each one becomes a job. Jobs wait in a bounded queue in
+ * front of the workers, and the reader stops once threads + queue boards are in
+ * flight, so a large input is never held in memory. Results are written in input
+ * order, in the line format of BatchSolver, by waiting on the oldest job first.
+ *
+ * There are as many solvers as threads. A job borrows an idle one and resets it
+ * to its board, so every solver keeps its warm dead-position cache (peg.cacheMB
+ * each). Workers are platform threads by default. Virtual threads are used when
+ * asked for and the JVM has them. With a timeout, or a node budget given by
+ * -Dpeg.maxNodes, a board that runs out of it is reported as BUDGET_EXCEEDED.
+ * Boards, solvers and metrics are as in BatchSolver, and metrics are written in
+ * input order too.
+ */
+public class ConcurrentBatchSolver {
+	private BoardTopology topology;
+	//dfs, astar or minmoves
+	private String kind;
+	private int threads;
+	private long timeoutMillis;
+	private long maxNodes;
+	//Solvers not in use by any job
+	private BlockingQueue<PegSolver> idle;
+	//Solvers built so far
+	private AtomicInteger created = new AtomicInteger();
+
+	ConcurrentBatchSolver(BoardTopology topology, String kind, int threads, long timeoutMillis, long maxNodes)
+	{
+		this.topology = topology;
+		this.kind = kind;
+		this.threads = threads;
+		this.timeoutMillis = timeoutMillis;
+		this.maxNodes = maxNodes;
+		idle = new ArrayBlockingQueue<PegSolver>(threads);
+	}
+
+	//An idle solver loaded with the board, or a new one while there are fewer
+	//solvers than threads
+	private PegSolver acquire(String input[]) throws InterruptedException
+	{
+		PegSolver solver = idle.poll();
+		if(solver == null)
+		{
+			if(created.getAndIncrement() < threads)
+				return BatchSolver.newSolver(topology, kind, input);
+			solver = idle.take();
+		}
+		solver.reset(input);
+		return solver;
+	}
+
+	//Solves one board, giving its result line and its metrics line
+	class Job implements Callable<String[]>
+	{
+		private int index;
+		private String input[];
+
+		Job(int index, String input[])
+		{
+			this.index = index;
+			this.input = input;
+		}
+
+		public String[] call() throws Exception
+		{
+			PegSolver solver = acquire(input);
+			try
+			{
+				solver.solveGame(timeoutMillis > 0 ? System.currentTimeMillis() + timeoutMillis : 0, maxNodes);
+				return new String[] { BatchSolver.resultLine(index, solver), solver.getMetrics().format() };
+			}
+			finally
+			{
+				idle.put(solver);
+			}
+		}
+	}
+
+	//Virtual threads through reflection, as they are only in newer JVMs. Returns
+	//null if they are not available
+	static ExecutorService virtualExecutor()
+	{
+		try
+		{
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch(Exception e)
+		{
+			return null;
+		}
+	}
+
+	//Solves every board of the input file, returning the number of boards
+	int run(String inputFile, String outputFile, boolean virtual, int queueSize) throws Exception
+	{
+		ExecutorService workers = virtual ? virtualExecutor() : null;
+		if(virtual && workers == null)
+			System.err.println("Virtual threads are not available, using platform threads");
+		if(workers == null)
+		{
+			//A worker that has just finished a job may not be taking from the queue
+			//yet, so a full queue makes the reader wait rather than fail
+			workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(queueSize), new RejectedExecutionHandler() {
+					public void rejectedExecution(Runnable r, ThreadPoolExecutor executor)
+					{
+						try
+						{
+							executor.getQueue().put(r);
+						}
+						catch(InterruptedException e)
+						{
+							throw new RejectedExecutionException(e);
+						}
+					}
+				});
+		}
+		BoardReader in = new BoardReader(inputFile, topology.N);
+		BufferedWriter out = new BufferedWriter(new FileWriter(outputFile), 1 << 20);
+		BufferedWriter metrics = BatchSolver.openMetrics(outputFile);
+		//Jobs in input order. Never more than the workers plus the queue can hold
+		ArrayDeque<Future<String[]>> pending = new ArrayDeque<Future<String[]>>();
+		String input[] = new String[topology.N];
+		int boards = 0;
+		try
+		{
+			while(in.next(input))
+			{
+				if(pending.size() == threads + queueSize)
+					write(out, metrics, pending.poll());
+				pending.add(workers.submit(new Job(boards++, input.clone())));
+			}
+			while(!pending.isEmpty())
+				write(out, metrics, pending.poll());
+		}
+		finally
+		{
+			workers.shutdownNow();
+			in.close();
+			out.close();
+			if(metrics != null)
+				metrics.close();
+		}
+		return boards;
+	}
+
+	private static void write(BufferedWriter out, BufferedWriter metrics, Future<String[]> job) throws Exception
+	{
+		String lines[] = job.get();
+		out.write(lines[0]);
+		out.newLine();
+		if(metrics != null)
+		{
+			metrics.write(lines[1]);
+			metrics.newLine();
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		if(args.length < 2 || args.length > 6)  {
+			System.err.println("usage: ConcurrentBatchSolver <inputFile> <outputFile> [dfs|astar|minmoves] [threads] [timeoutMillis] [platform|virtual]");
+			return;
+		}
+		String kind = args.length > 2 ? args[2] : "dfs";
+		int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		long timeoutMillis = args.length > 4 ? Long.parseLong(args[4]) : 0;
+		boolean virtual = args.length > 5 && args[5].equals("virtual");
+		//Boards waiting for a free worker
+		int queueSize = Integer.getInteger("peg.queue", 4 * threads);
+		long maxNodes = Long.getLong("peg.maxNodes", 0);
+
+		ConcurrentBatchSolver batch = new ConcurrentBatchSolver(BatchSolver.topology(), kind, threads, timeoutMillis, maxNodes);
+		long startTime = System.currentTimeMillis();
+		int boards = batch.run(args[0], args[1], virtual, queueSize);
+		long endTime = System.currentTimeMillis();
+		System.out.println(boards+" boards in "+(endTime - startTime)+" milliSeconds on "+threads+" threads");
+		EndgameTable endgame = EndgameTable.fromProperties();
+		if(endgame != null)
+			System.out.println(endgame.describe());
+	}
+}
@@ -0,0 +1,65 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * The thread-safe counterpart of LongHashSet, shared by the tasks of
+ * ParallelSolver. Empty slots are claimed with a CAS. When a key's probe window
+ * is full its home slot is overwritten, which at worst drops another thread's
+ * entry: the cache then forgets a dead position, it never invents one.
+ */
+class ConcurrentLongHashSet {
+	//Number of slots looked at for a key before it counts as absent
+	private static final int PROBES = 8;
+
+	private final AtomicLongArray keys;
+	private final int mask;
+	private final int shift;
+
+	//Creates a set using at most maxBytes of key storage
+	public ConcurrentLongHashSet(long maxBytes)
+	{
+		long slots = Long.highestOneBit(Math.max(maxBytes / 8, 16));
+		if(slots > (1 << 30))
+			slots = 1 << 30;
+		keys = new AtomicLongArray((int)slots);
+		mask = (int)slots - 1;
+		shift = 64 - Long.numberOfTrailingZeros(slots);
+	}
+
+	private int home(long key)
+	{
+		return (int)((key * 0x9E3779B97F4A7C15L) >>> shift);
+	}
+
+	public boolean contains(long key)
+	{
+		int slot = home(key);
+		for(int p = 0 ; p < PROBES ; p ++)
+		{
+			long k = keys.get((slot + p) & mask);
+			if(k == key)
+				return true;
+			if(k == 0)
+				return false;
+		}
+		return false;
+	}
+
+	public void add(long key)
+	{
+		if(key == 0)
+			return;
+		int slot = home(key);
+		for(int p = 0 ; p < PROBES ; p ++)
+		{
+			int s = (slot + p) & mask;
+			long k = keys.get(s);
+			if(k == key)
+				return;
+			if(k == 0 && keys.compareAndSet(s, 0, key))
+				return;
+			if(keys.get(s) == key)
+				return;
+		}
+		keys.set(slot, key);
+	}
+}
@@ -0,0 +1,254 @@
+import java.util.Stack;
+
+/*
+ * The plain DFS of DFSLauncher written as a loop over an explicit stack. Each
+ * depth keeps the move that led to it and a resume cursor into the jump table,
+ * which is ordered by from-hole and then direction, so the cursor is the
+ * (cell, direction) pair to try next. There is no recursion and no synchronized
+ * Stack on the hot path, and the depth is bounded by the peg count rather than
+ * by the thread's stack size.
+ *
+ * Like DFSLauncher it searches any BoardTopology, the English board unless told
+ * otherwise.
+ */
+class DFSIterative {
+	//The board searched, its holes, jumps and symmetries
+	private BoardTopology topology;
+	// The size of the board
+	private int N;
+	//The input board, used for its layout when displaying
+	private char board[][];
+	//The intermediate board, one bit per hole
+	private long pegs;
+	//Checks if the path has been found
+	private boolean done;
+	private int numPegs;
+	//Move made at each depth
+	private int path[];
+	//Next move to try at each depth
+	private int cursor[];
+	Stack<pair> moves;
+	//Set when the start position is outside the class of the centre finish
+	boolean rejected = false;
+	//positions already proven to have no winning path
+	LongHashSet deadCache;
+	//verbose mode variable
+	int verbose = 0;
+	//keeps a count of the expanded nodes
+	int expandedNodes = 0;
+
+	//A solver for the English board of the given size
+	public DFSIterative(int dimension, String boardState[])
+	{
+		this(BoardTopology.ENGLISH, boardState);
+	}
+
+	//A solver for any board
+	public DFSIterative(BoardTopology topology, String boardState[])
+	{
+		this.topology = topology;
+		numPegs = 0;
+		moves = new Stack<pair>();
+		N = topology.N;
+		done = false;
+		board = new char[N][N];
+		for(int i = 0 ; i < N ; i ++)
+		{
+			for(int j = 0 ; j < N ; j ++)
+			{
+				board[i][j] = j < boardState[i].length() ? boardState[i].charAt(j) : '-';
+				if(board[i][j]=='X')
+				{
+					if(!topology.isHole(i, j))
+						throw new IllegalArgumentException("Peg at (" + i + "," + j + ") is off the " + topology.name + " board");
+					numPegs++;
+				}
+			}
+		}
+		pegs = topology.fromBoard(board);
+		path = new int[numPegs + 1];
+		cursor = new int[numPegs + 1];
+		deadCache = LongHashSet.fromProperties();
+	}
+
+	//wrapper to display the winning path
+	public int displaySolution()
+	{
+		displayMoves(moves);
+		return expandedNodes;
+	}
+
+	//Displays the winning path
+	public void displayMoves(Stack<pair>moveStore)
+	{
+		if(!done)
+		{
+			System.out.print("No Winning path on this configuration");
+		}
+		while(!moveStore.empty())
+		{
+			pair top = moveStore.pop();
+			System.out.print("( "+top.x+","+top.y+" )  ");
+		}
+	}
+
+	//display the state of the board
+	public void displayBoard()
+	{
+		topology.toBoard(pegs, board);
+		for(int i = 0 ; i < N; i ++)
+		{
+			for(int j = 0 ; j < N ; j ++)
+			{
+				System.out.print(board[i][j]);
+			}
+		}
+		System.out.print("\n");
+	}
+
+	//Counts and traces a node on entry. Returns false if it is a dead leaf
+	private boolean enterNode(int nPegs)
+	{
+		expandedNodes++;
+		if(verbose!=0)
+		{
+			System.out.println("*****");
+			System.out.println("Intermediate Trace");
+			displayBoard();
+		}
+		if(nPegs==1)
+		{
+			if(topology.isGoal(pegs))
+				done = true;
+			return false;
+		}
+		return true;
+	}
+
+	//Invokes the iterative DFS
+	public void solveGame()
+	{
+		//Positions outside the class of the centre finish are rejected without searching
+		if(!topology.canReachTarget(pegs))
+		{
+			rejected = true;
+			return;
+		}
+		int depth = 0;
+		int nPegs = numPegs;
+		if(!enterNode(nPegs))
+		{
+			depth = -1;
+		}
+		cursor[0] = 0;
+		int moveFrom[] = topology.moveFrom;
+		int firstMove[] = topology.firstMove;
+		long moveMask[] = topology.moveMask;
+		int moveCount = topology.moves;
+		while(depth >= 0)
+		{
+			//Next legal move at this depth, skipping holes without a peg
+			int m = cursor[depth];
+			while(m < moveCount)
+			{
+				int from = moveFrom[m];
+				if((pegs & (1L << from)) == 0)
+					m = firstMove[from+1];
+				else if(topology.isLegal(pegs, m))
+					break;
+				else
+					m++;
+			}
+			if(m < moveCount)
+			{
+				cursor[depth] = m + 1;
+				pegs ^= moveMask[m];
+				path[depth] = m;
+				nPegs--;
+				if(nPegs > 1 && deadCache != null && deadCache.contains(canonical(pegs)))
+				{
+					pegs ^= moveMask[m];
+					nPegs++;
+					continue;
+				}
+				if(!enterNode(nPegs))
+				{
+					if(done)
+					{
+						depth++;
+						break;
+					}
+					pegs ^= moveMask[m];
+					nPegs++;
+					continue;
+				}
+				depth++;
+				cursor[depth] = 0;
+			}
+			else
+			{
+				//Every move from here has been tried without success
+				if(deadCache != null)
+					deadCache.add(canonical(pegs));
+				depth--;
+				if(depth >= 0)
+				{
+					pegs ^= moveMask[path[depth]];
+					nPegs++;
+				}
+			}
+		}
+		if(done)
+		{
+			for(int d = 0 ; d < depth ; d ++)
+				moves.push(new pair(topology.moveFrom[path[d]], topology.moveTo[path[d]]));
+		}
+	}
+
+	//Key of the dead-position cache, as in DFSLauncher
+	private long canonical(long pegs)
+	{
+		return topology == BoardTopology.ENGLISH ? Symmetry.canonical(pegs) : topology.canonical(pegs);
+	}
+
+	static double getMemUsed() {
+		double used  = Runtime.getRuntime().totalMemory() -
+			Runtime.getRuntime().freeMemory();
+		return (used/1024);
+	}
+
+	public static void main(String[] args) throws Exception {
+
+		//The board named by -Dpeg.board, english if it is not set
+		BoardTopology topology = BatchSolver.topology();
+		int N = topology.N;
+		if(args.length!=2)  {
+			System.err.println("usage: DFSIterative <filePath> <verbose boolean>");
+			return;
+		}
+		String input[]= new String[N];
+		BoardReader in = new BoardReader(args[0], N);
+		if(!in.next(input))
+		{
+			System.err.println("No board in "+args[0]);
+			return;
+		}
+		in.close();
+		for(int i = 0 ; i < N ; i ++)
+			System.out.println(input[i]);
+		DFSIterative solver = new DFSIterative(topology, input);
+		solver.verbose = Integer.parseInt(args[1]);
+		long startTime = System.currentTimeMillis();
+		solver.solveGame();
+		long endTime = System.currentTimeMillis();
+
+		int expandedNodes = solver.displaySolution();
+		System.out.println("\n***STATS***");
+		System.out.println(endTime - startTime+" milliSeconds");
+		System.out.println("Memory used: "+ getMemUsed()+ " KB\nNodes visited: "+expandedNodes);
+		if(solver.deadCache != null)
+			System.out.println("Cache hits: "+solver.deadCache.hits+"\nCache misses: "+solver.deadCache.misses);
+		if(solver.rejected)
+			System.out.println("Rejected by the position class check");
+	}
+}
@@ -1,5 +1,3 @@
-import java.io.DataInputStream;
-import java.io.FileInputStream;
 import java.util.Stack;
 
 /*
@@ -22,39 +20,204 @@ class pair
 /*
  * The class that launches DFS
  * 
+ * It searches any BoardTopology, the English board unless told otherwise. The
+ * dead-position cache and the history ordering work on every board. The
+ * position class check needs a board that jumps along rows and columns only,
+ * with a fixed target. Pagoda functions, dead patterns, the solution database
+ * and the endgame table are worked out for the English board and are only used
+ * there.
  */
-class DFSLauncher {
+class DFSLauncher implements PegSolver {
+	//The board searched, its holes, jumps and symmetries
+	private BoardTopology topology;
 	// The size of the board
 	private int N;
-	//The intermediate board
+	//The input board, used for its layout when displaying
 	private char board[][];
+	//The intermediate board, one bit per hole
+	private long pegs;
 	//Checks if the path has been found 
 	private boolean done;
 	private int numPegs;
 	Stack<pair> moves;
+	//Set when the start position is outside the class of the centre finish
+	boolean rejected = false;
+	//positions already proven to have no winning path
+	LongHashSet deadCache;
+	//pagoda functions checked on every move, and the branches they cut
+	PagodaSet pagodas;
+	long pagodaPrunes = 0;
+	//parity and final-jump patterns checked on every move, stranded pegs on every
+	//node, and the branches they cut
+	DeadPatterns patterns;
+	long patternPrunes = 0;
+	//positions decided by earlier searches, kept on disk (-Dpeg.db)
+	SolutionDatabase database;
+	//winning positions with few pegs, looked up instead of searched (-Dpeg.endgamePegs)
+	EndgameTable endgame;
+	long endgameLookups = 0;
+	//adaptive move ordering (-Dpeg.order=history), null for the fixed order
+	MoveHistory history;
+	//Deepest node entered since the move being scored was made
+	private int deepest = 0;
+	//Move made at each depth of the current line
+	private int path[];
+	//counters of the last solve, and the deepest node it expanded
+	SolverMetrics metrics;
+	int maxDepth = 0;
+	//Depth of the node entered last. With path, read by a ProgressSampler on
+	//another thread without any locking
+	private int depth = 0;
 	//verbose mode variable
-	static int verbose = 0;
+	int verbose = 0;
 	//keeps a count of the expanded nodes
-	public static int expandedNodes = 0;
-	// The default constructor
+	int expandedNodes = 0;
+	//Set from another thread to stop the search early
+	private volatile boolean cancelled = false;
+	//Wall-clock deadline and node budget of the running search, 0 for none
+	private long deadline;
+	private long maxNodes;
+	//Node count at which the limits are next looked at
+	private long nextCheck;
+	//Set once a limit has stopped the search
+	private boolean stopped;
+	//Outcome of the last solveGame
+	private SolveResult result;
+	//Nodes between two looks at the clock and the cancel flag
+	private static final int CHECK_INTERVAL = 4096;
+	// The default constructor, for the English board of the given size
 	public DFSLauncher(int dimension, String boardState[])
 	{
-		//Initialisingg variables
-		numPegs = 0;
+		this(BoardTopology.ENGLISH, boardState);
+	}
+
+	//A solver for any board
+	public DFSLauncher(BoardTopology topology, String boardState[])
+	{
+		//Allocating space
+		this.topology = topology;
 		moves = new Stack<pair>();
-		N = dimension;
-		done = false;
+		N = topology.N;
 		board = new char[N][N];
-		//Initializing board configuration
+		deadCache = LongHashSet.fromProperties();
+		history = MoveHistory.fromProperties(topology);
+		if(topology == BoardTopology.ENGLISH)
+		{
+			pagodas = PagodaSet.fromProperties();
+			patterns = DeadPatterns.fromProperties();
+			database = SolutionDatabase.fromProperties();
+			endgame = EndgameTable.fromProperties();
+			metrics = new SolverMetrics("DFSLauncher");
+		}
+		else
+		{
+			metrics = new SolverMetrics("DFSLauncher/" + topology.name);
+		}
+		path = new int[topology.holes + 1];
+		reset(boardState);
+	}
+
+	//Loads a new board into this solver. Dead positions stay in the cache, as a
+	//position is dead whatever board it was reached from
+	public void reset(String boardState[])
+	{
+		numPegs = 0;
+		moves.clear();
+		done = false;
+		rejected = false;
+		cancelled = false;
+		stopped = false;
+		result = null;
+		expandedNodes = 0;
+		maxDepth = 0;
+		depth = 0;
+		pagodaPrunes = 0;
+		patternPrunes = 0;
+		endgameLookups = 0;
+		if(history != null)
+			history.age();
 		for(int i = 0 ; i < N ; i ++)
 		{
 			for(int j = 0 ; j < N ; j ++)
 			{
-				board[i][j] = boardState[i].charAt(j);
+				board[i][j] = j < boardState[i].length() ? boardState[i].charAt(j) : '-';
 				if(board[i][j]=='X')
+				{
+					if(!topology.isHole(i, j))
+						throw new IllegalArgumentException("Peg at (" + i + "," + j + ") is off the " + topology.name + " board");
 					numPegs++;
+				}
 			}
 		}
+		pegs = topology.fromBoard(board);
+	}
+
+	public boolean isSolved()
+	{
+		return done;
+	}
+
+	public Stack<pair> getMoves()
+	{
+		return moves;
+	}
+
+	public long getExpandedNodes()
+	{
+		return expandedNodes;
+	}
+
+	public void cancel()
+	{
+		cancelled = true;
+	}
+
+	public SolveResult getResult()
+	{
+		return result;
+	}
+
+	public SolverMetrics getMetrics()
+	{
+		return metrics;
+	}
+
+	public BoardTopology getTopology()
+	{
+		return topology;
+	}
+
+	public int getDepth()
+	{
+		return depth;
+	}
+
+	public long getPosition()
+	{
+		return pegs;
+	}
+
+	public int getLine(int line[])
+	{
+		int n = Math.min(depth, line.length);
+		System.arraycopy(path, 0, line, 0, n);
+		return n;
+	}
+
+	//Looks at the limits. Called when expandedNodes reaches nextCheck, so the
+	//clock and the cancel flag are read once every CHECK_INTERVAL nodes
+	private boolean limitReached()
+	{
+		if(cancelled || (maxNodes > 0 && expandedNodes >= maxNodes)
+			|| (deadline > 0 && System.currentTimeMillis() >= deadline))
+		{
+			stopped = true;
+			return true;
+		}
+		nextCheck = expandedNodes + CHECK_INTERVAL;
+		if(maxNodes > 0 && nextCheck > maxNodes)
+			nextCheck = maxNodes;
+		return false;
 	}
 	
 	//wrapper to display the winning path
@@ -80,44 +243,68 @@ class DFSLauncher {
 	}
 
 	//Returns a number representative required by the assignment
-	//of the (i,j) coordinate system that we use for our board
-	public int getPegNumber(int i , int j)throws Exception
+	//of the (i,j) coordinate system that we use for our board. Cells that
+	//are not holes throw an IllegalArgumentException
+	public int getPegNumber(int i , int j)
 	{
-		
-		if(i < 2)
+		return topology.holeAt(i, j);
+	}
+	
+	//Invokes DFS
+	public void solveGame() throws Exception
+	{
+		solveGame(0, 0);
+	}
+
+	//Invokes DFS until a System.currentTimeMillis deadline or a number of expanded
+	//nodes is reached, 0 for no limit. The stats are those of the partial search
+	public SolveResult solveGame(long deadline, long maxNodes) throws Exception
+	{
+		this.deadline = deadline;
+		this.maxNodes = maxNodes;
+		nextCheck = 0;
+		metrics.begin(deadCache, database);
+		boolean reachable = topology.canReachTarget(pegs);
+		SolveResult known = null;
+		if(reachable && database != null)
+			known = database.lookup(pegs, moves);
+		//Positions outside the class of the finish are rejected without searching
+		if(!reachable)
 		{
-			if(j>1 && j <5)
-			{
-				return i*3 + j -2;
-			}
-			
+			rejected = true;
 		}
-		else if(i>=2 && i<=4)
+		else if(known != null)
 		{
-			return 5 + (i-2)*7 + j + 1;			
+			//Decided by an earlier search, in this run or an earlier one
+			done = known == SolveResult.SOLVED;
+			if(done)
+				metrics.solutionFound();
 		}
-		else if (i>4)
+		else if(pagodas != null && !pagodas.reset(pegs))
 		{
-			if(j>1 && j <5)
-			{
-				return 27 + (i-5)*3 + j -2 ; 
-			}
+			pagodaPrunes++;
 		}
-		
-		throw new Exception();
-		
-	}
-	
-	//Invokes DFS
-	public void solveGame() throws Exception
-	{
-		Stack<pair> moveStore = new Stack<pair>();
-		doDfs(numPegs,moveStore);
+		else if(patterns != null && !patterns.reset(pegs))
+		{
+			patternPrunes++;
+		}
+		else
+		{
+			Stack<pair> moveStore = new Stack<pair>();
+			doDfs(numPegs,moveStore);
+		}
+		result = done ? SolveResult.SOLVED : stopped ? SolveResult.BUDGET_EXCEEDED : SolveResult.NO_SOLUTION;
+		//Keep what this search decided, so the board is not searched again
+		if(reachable && known == null && database != null && result != SolveResult.BUDGET_EXCEEDED)
+			database.store(pegs, result, moves);
+		metrics.end(result, rejected, expandedNodes, maxDepth, pagodaPrunes, patternPrunes, deadCache, database);
+		return result;
 	}
 	
 	//display the state of the board
 	public void displayBoard()
 	{
+		topology.toBoard(pegs, board);
 		for(int i = 0 ; i < N; i ++)
 		{
 			for(int j = 0 ; j < N ; j ++)
@@ -132,10 +319,42 @@ class DFSLauncher {
 	//The actual DFS without any heuristic
 	public void doDfs(int nPegs, Stack<pair>moveStore) throws Exception
 	{
-		if(done)return;
+		if(done || stopped)return;
+
+		//Few enough pegs left for the endgame table to decide the position at once,
+		//without counting it as an expanded node
+		if(endgame != null && nPegs <= endgame.getMaxPegs())
+		{
+			endgameLookups++;
+			if(endgame.contains(pegs))
+			{
+				winLine(moveStore);
+				endgame.finishLine(pegs, moves);
+			}
+			return;
+		}
+		
+		//A position reached before by another move order, or a rotation or reflection
+		//of one, that was found dead is not expanded again
+		if(nPegs > 1 && deadCache != null && deadCache.contains(canonical(pegs)))
+			return;
 		
-		//incrementing the expanded nodes
+		//Pegs split into parts that can never meet, or cut off from the centre
+		if(nPegs > 1 && patterns != null && !patterns.connected())
+		{
+			patternPrunes++;
+			return;
+		}
+
+		//incrementing the expanded nodes, within the budget
+		if(expandedNodes >= nextCheck && limitReached())
+			return;
 		expandedNodes++;
+		depth = numPegs - nPegs;
+		if(depth > maxDepth)
+			maxDepth = depth;
+		if(depth > deepest)
+			deepest = depth;
 	
 		if(verbose!=0)
 		{
@@ -146,113 +365,107 @@ class DFSLauncher {
 		}
 		
 		// The terminal state. If the # of pegs is one, 
-		// and we are at the center of board, we are done, else not
+		// and we are at the target of the board, we are done, else not
 		if(nPegs==1)
 		{
-			if(board[N/2][N/2]=='X')
+			if(topology.isGoal(pegs))
 			{	
-				done = true;
-				moves= (Stack<pair>) moveStore.clone();
+				winLine(moveStore);
 			}
 			return;
 		}
 
-		for(int i = 0 ; i < N ; i ++)
+		if(history != null)
 		{
-			for(int j = 0 ; j < N ; j ++)
+			//Moves in the order of the history table, the killers of this depth first.
+			//Each is scored by how deep the search went after it
+			int d = numPegs - nPegs;
+			int n = history.order(pegs, d);
+			for(int c = 0 ; c < n && !done && !stopped ; c ++)
 			{
-				//For every peg on the board do all possible moves
-				if(board[i][j]=='X')
+				int m = history.move(d, c);
+				int before = deepest;
+				deepest = d;
+				tryMove(m, nPegs, moveStore);
+				//a subtree cut short by a limit says nothing about the move
+				if(!stopped)
+					history.update(d, m, deepest - d);
+				if(before > deepest)
+					deepest = before;
+			}
+		}
+		else
+		{
+			//For every peg on the board do all possible moves, in the same row-major
+			//down/up/right/left order as a scan of the char board
+			int firstMove[] = topology.firstMove;
+			long moveNeed[] = topology.moveNeed;
+			long moveEmpty[] = topology.moveEmpty;
+			long rest = pegs;
+			while(rest != 0)
+			{
+				int h = Long.numberOfTrailingZeros(rest);
+				rest &= rest - 1;
+				for(int m = firstMove[h], last = firstMove[h+1] ; m < last ; m ++)
 				{
-					//Down move
-					if(i+2 < N)
-					{
-						if(board[i+2][j]=='0' && board[i+1][j]=='X')
-						{
-							//make the move
-							
-							board[i+2][j] = 'X';
-							board[i][j] = '0';
-							board[i+1][j] = '0';
-							int pegInit = getPegNumber(i,j);
-							int pegFinal = getPegNumber(i+2, j);
-							moveStore.push(new pair(pegInit, pegFinal));
-							doDfs(nPegs-1, moveStore);
-							board[i+2][j] = '0';
-							board[i][j] = 'X';
-							board[i+1][j] = 'X';
-							moveStore.pop();
-						}
-					}
-					//Up move
-					if(i-2 >=0)
-					{
-						if(board[i-2][j]=='0' && board[i-1][j]=='X')
-						{
-							//make the move
-							
-							board[i-2][j] = 'X';
-							board[i][j] = '0';
-							board[i-1][j] = '0';
-							int pegInit = getPegNumber(i,j);
-							int pegFinal = getPegNumber(i-2, j);
-							moveStore.push(new pair(pegInit, pegFinal));
-							doDfs(nPegs-1, moveStore);
-							board[i-2][j] = '0';
-							board[i][j] = 'X';
-							board[i-1][j] = 'X';
-							moveStore.pop();
-						}
-					}
-					//Right move
-					if(j+2 < N)
-					{
-						if(board[i][j+2]=='0' && board[i][j+1]=='X')
-						{
-							//make the move
-							
-							board[i][j+2] = 'X';
-							board[i][j] = '0';
-							board[i][j+1] = '0';
-							int pegInit = getPegNumber(i,j);
-							int pegFinal = getPegNumber(i, j+2);
-							moveStore.push(new pair(pegInit, pegFinal));
-							doDfs(nPegs-1, moveStore);
-							board[i][j+2] = '0';
-							board[i][j] = 'X';
-							board[i][j+1] = 'X';
-							moveStore.pop();
-						}
-					}
-					
-					//Left move
-					if(j-2 >=0)
-					{
-						if(board[i][j-2]=='0' && board[i][j-1]=='X')
-						{
-							//make the move
-							board[i][j-2] = 'X';
-							board[i][j] = '0';
-							board[i][j-1] = '0';
-							int pegInit = getPegNumber(i,j);
-							int pegFinal = getPegNumber(i, j-2);
-							moveStore.push(new pair(pegInit, pegFinal));
-							doDfs(nPegs-1, moveStore);
-							board[i][j-2] = '0';
-							board[i][j] = 'X';
-							board[i][j-1] = 'X';
-							moveStore.pop();
-						}
-					}
-					
+					if((pegs & moveNeed[m]) == moveNeed[m] && (pegs & moveEmpty[m]) == 0)
+						tryMove(m, nPegs, moveStore);
 				}
-
 			}
-			
 		}
+		//Every move from here has been tried without success
+		if(!done && !stopped && deadCache != null)
+			deadCache.add(canonical(pegs));
 		return;
 	}
 
+	//Smallest image of a position under the symmetries of the board, the key of
+	//the dead-position cache. Symmetry does the English board faster
+	private long canonical(long pegs)
+	{
+		return topology == BoardTopology.ENGLISH ? Symmetry.canonical(pegs) : topology.canonical(pegs);
+	}
+
+	//Marks the board won, keeping a copy of the moves that led here
+	private void winLine(Stack<pair>moveStore)
+	{
+		done = true;
+		moves = new Stack<pair>();
+		moves.addAll(moveStore);
+		metrics.solutionFound();
+	}
+
+	//Makes the legal move m, searches on and takes it back
+	private void tryMove(int m, int nPegs, Stack<pair>moveStore) throws Exception
+	{
+		//make the move, unless a pagoda function shows it cannot win
+		if(pagodas != null && !pagodas.make(m))
+		{
+			pagodaPrunes++;
+			pagodas.unmake(m);
+			return;
+		}
+		//or a dead pattern shows up
+		if(patterns != null && !patterns.make(m))
+		{
+			patternPrunes++;
+			patterns.unmake(m);
+			if(pagodas != null)
+				pagodas.unmake(m);
+			return;
+		}
+		pegs ^= topology.moveMask[m];
+		moveStore.push(new pair(topology.moveFrom[m], topology.moveTo[m]));
+		path[numPegs - nPegs] = m;
+		doDfs(nPegs-1, moveStore);
+		pegs ^= topology.moveMask[m];
+		moveStore.pop();
+		if(pagodas != null)
+			pagodas.unmake(m);
+		if(patterns != null)
+			patterns.unmake(m);
+	}
+
 static double getMemUsed() {
     double used  = Runtime.getRuntime().totalMemory() - 
         Runtime.getRuntime().freeMemory();
@@ -262,29 +475,52 @@ static double getMemUsed() {
 	
 	public static void main(String[] args) throws Exception {
 		
-		int N = 7;
+		//The board named by -Dpeg.board, english if it is not set
+		BoardTopology topology = BatchSolver.topology();
+		int N = topology.N;
 	    if(args.length!=2)  {
-	      System.err.println("usage: DFSIterative <filePath> <verbose boolean>");
+	      System.err.println("usage: DFSLauncher <filePath> <verbose boolean>");
 	      return;
 	    }
 	    String input[]= new String[N];
-	    FileInputStream fstream = new FileInputStream(args[0]);
-		DataInputStream in = new DataInputStream(fstream);
+	    BoardReader in = new BoardReader(args[0], N);
+	    if(!in.next(input))
+	    {
+	    	System.err.println("No board in "+args[0]);
+	    	return;
+	    }
+	    in.close();
 		for(int i = 0 ; i < N ; i ++)
-		{
-			 input[i] = in.readLine();
 			 System.out.println(input[i]);
-		}
-		verbose = Integer.parseInt(args[1]);
-		DFSLauncher solver = new DFSLauncher(N, input);
+		DFSLauncher solver = new DFSLauncher(topology, input);
+		solver.verbose = Integer.parseInt(args[1]);
+		//Periodic progress reports, -Dpeg.progressMillis
+		ProgressSampler sampler = ProgressSampler.fromProperties(solver);
 		long startTime = System.currentTimeMillis();
 		solver.solveGame();
 		long endTime = System.currentTimeMillis();
+		if(sampler != null)
+			sampler.finish();
 		
 		int expandedNodes = solver.displaySolution();
 	    System.out.println("\n***STATS***");
 	    System.out.println(endTime - startTime+" milliSeconds");
-	    System.out.println("Memory used: "+ getMemUsed()+ " bytes\nNodes visited: "+expandedNodes);
+	    System.out.println("Memory used: "+ getMemUsed()+ " KB\nNodes visited: "+expandedNodes);
+	    System.out.println("Pattern prunes: "+solver.patternPrunes);
+	    System.out.println("Nodes per second: "+String.format("%.0f", solver.metrics.nodesPerSecond())+"\nMax depth: "+solver.maxDepth);
+	    if(solver.deadCache != null)
+	    	System.out.println("Cache hits: "+solver.deadCache.hits+"\nCache misses: "+solver.deadCache.misses);
+	    System.out.println("Pagoda prunes: "+solver.pagodaPrunes);
+	    if(solver.endgame != null)
+	    	System.out.println(solver.endgame.describe()+"\nEndgame lookups: "+solver.endgameLookups);
+	    if(solver.database != null)
+	    	System.out.println("Database hits: "+solver.database.hits+"\nDatabase misses: "+solver.database.misses);
+	    if(solver.rejected)
+	    	System.out.println("Rejected by the position class check");
+	    //A machine-readable line for -Dpeg.metrics=json or csv
+	    String line = solver.metrics.format();
+	    if(line != null)
+	    	System.out.println(line);
 	}
 	
 }
@@ -0,0 +1,284 @@
+/*
+ * Patterns that prove a position dead: peg counts checked in constant time per
+ * move, and pegs stranded away from the rest, checked once per node.
+ *
+ * Holes fall into 4 types by the parity of their row and column. A jump moves a
+ * peg by two holes, so pegs never change type, and the peg jumped over is of a
+ * type that differs in one coordinate only. A peg of any type but the centre's
+ * must be jumped over some time, which takes a peg of one of its two adjacent
+ * types, and the pegs of the centre's type must come down to exactly one. So a
+ * position is dead when
+ *  - no peg is left of the centre's type, or
+ *  - pegs of a type that must go, or more than one of the centre's type, are
+ *    left with no peg of either adjacent type anywhere on the board.
+ * A position with two pegs is only alive when they make the last jump into the
+ * centre.
+ *
+ * These counts are global. Local dead ends are found from the closure of the
+ * pegs: every hole they could ever fill, where a hole joins when some jump lands
+ * there from two holes already in it. A peg can only be moved by or over pegs
+ * at most two holes away along its row or column, so if the closure falls into
+ * parts with no two holes that close, the pegs of each part can never meet the
+ * others and each part keeps at least one peg for good: the position is dead.
+ * So is a position whose closure misses the centre. This catches a peg stranded
+ * in an arm corner with no pegs near it and groups cut off from the centre.
+ *
+ * As with PagodaSet the counts of one search are kept up to date move by move.
+ * The closure is worked out by connected(), once per node, with the position
+ * spread over the N x N grid so that each step covers every jump at once with
+ * a few shifts. Whether the pegs are one part is worked out around the move
+ * only: when they were one part before it, they still are if the pegs near its
+ * from and over holes and the peg that landed stay joined, as every other peg
+ * reached the rest through one of them. The part of the landing peg is grown
+ * only until it holds them. Once the pegs have split, the part test is skipped
+ * and the closure alone decides.
+ *
+ * AStarLauncher does not use these checks. Its moves leaving the fewest jumps
+ * come first, which runs into the same dead ends within a few nodes. On the
+ * hard and unsolvable boards the checks cut at most 12% of its nodes and cost
+ * about as much time as that saves.
+ */
+class DeadPatterns {
+	//Parity type of every hole, 2 * (row & 1) + (col & 1)
+	private static final int TYPE[] = new int[BitBoard.HOLES];
+	private static final int TARGET_TYPE;
+	//The 2-peg positions that jump into the centre
+	private static final long FINAL[] = new long[4];
+	//Cells of the N x N grid, row by row, for every byte value of every chunk
+	//of a position
+	private static final int W = BitBoard.N;
+	private static final long GRID[][] = new long[(BitBoard.HOLES + 7) / 8][256];
+	//Cells that are holes, and the centre cell
+	private static final long BOARD;
+	private static final long CENTRE_CELL = 1L << (BitBoard.ROW[BitBoard.CENTRE] * W + BitBoard.COL[BitBoard.CENTRE]);
+	//Cells at least 1 and 2 columns from the left edge, and from the right edge
+	private static final long FROM_LEFT[] = new long[3];
+	private static final long FROM_RIGHT[] = new long[3];
+	//Cell every move lands on, and the cells at most two along a row or column
+	//from its from and over holes
+	private static final long TO_CELL[] = new long[BitBoard.MOVES];
+	private static final long NEAR_CELLS[] = new long[BitBoard.MOVES];
+
+	static
+	{
+		for(int h = 0 ; h < BitBoard.HOLES ; h ++)
+			TYPE[h] = 2 * (BitBoard.ROW[h] & 1) + (BitBoard.COL[h] & 1);
+		TARGET_TYPE = TYPE[BitBoard.CENTRE];
+		int n = 0;
+		for(int m = 0 ; m < BitBoard.MOVES ; m ++)
+		{
+			if(BitBoard.MOVE_TO[m] == BitBoard.CENTRE)
+				FINAL[n++] = BitBoard.MOVE_NEED[m];
+		}
+		long board = 0;
+		for(int h = 0 ; h < BitBoard.HOLES ; h ++)
+		{
+			long cell = 1L << (BitBoard.ROW[h] * W + BitBoard.COL[h]);
+			board |= cell;
+			for(int v = 0 ; v < 256 ; v ++)
+			{
+				if((v & (1 << (h & 7))) != 0)
+					GRID[h >> 3][v] |= cell;
+			}
+		}
+		BOARD = board;
+		for(int m = 0 ; m < BitBoard.MOVES ; m ++)
+		{
+			TO_CELL[m] = 1L << (BitBoard.ROW[BitBoard.MOVE_TO[m]] * W + BitBoard.COL[BitBoard.MOVE_TO[m]]);
+			int ends[] = {BitBoard.MOVE_FROM[m], BitBoard.MOVE_OVER[m]};
+			for(int e : ends)
+			{
+				for(int k = -2 ; k <= 2 ; k ++)
+				{
+					int i = BitBoard.ROW[e], j = BitBoard.COL[e];
+					if(i + k >= 0 && i + k < W)
+						NEAR_CELLS[m] |= 1L << ((i + k) * W + j);
+					if(j + k >= 0 && j + k < W)
+						NEAR_CELLS[m] |= 1L << (i * W + j + k);
+				}
+			}
+			NEAR_CELLS[m] &= BOARD;
+		}
+		for(int i = 0 ; i < W ; i ++)
+		{
+			for(int j = 0 ; j < W ; j ++)
+			{
+				for(int k = 1 ; k <= 2 ; k ++)
+				{
+					if(j >= k)
+						FROM_LEFT[k] |= 1L << (i * W + j);
+					if(j < W - k)
+						FROM_RIGHT[k] |= 1L << (i * W + j);
+				}
+			}
+		}
+	}
+
+	//Pegs on the holes of every type
+	private int count[] = new int[4];
+	private long pegs;
+	//Moves made since reset, and whether the pegs after each number of them were
+	//found to be one part
+	private int depth;
+	private int moveAt[] = new int[BitBoard.HOLES];
+	private boolean linked[] = new boolean[BitBoard.HOLES];
+
+	//The detector unless -Dpeg.deadPatterns=false
+	static DeadPatterns fromProperties()
+	{
+		if(!Boolean.parseBoolean(System.getProperty("peg.deadPatterns", "true")))
+			return null;
+		return new DeadPatterns();
+	}
+
+	//Counts the pegs of a position. Returns false if the position is dead
+	public boolean reset(long pegs)
+	{
+		this.pegs = pegs;
+		depth = 0;
+		linked[0] = false;
+		for(int t = 0 ; t < 4 ; t ++)
+			count[t] = 0;
+		for(int h = 0 ; h < BitBoard.HOLES ; h ++)
+		{
+			if((pegs & (1L << h)) != 0)
+				count[TYPE[h]]++;
+		}
+		return feasible();
+	}
+
+	//Updates the counts for move m. Returns false if the new position is dead
+	public boolean make(int m)
+	{
+		pegs ^= BitBoard.MOVE_MASK[m];
+		count[TYPE[BitBoard.MOVE_OVER[m]]]--;
+		moveAt[depth++] = m;
+		linked[depth] = false;
+		return feasible();
+	}
+
+	//Takes move m back
+	public void unmake(int m)
+	{
+		pegs ^= BitBoard.MOVE_MASK[m];
+		count[TYPE[BitBoard.MOVE_OVER[m]]]++;
+		depth--;
+	}
+
+	private boolean feasible()
+	{
+		if(count[TARGET_TYPE] == 0)
+			return false;
+		for(int t = 0 ; t < 4 ; t ++)
+		{
+			//t ^ 1 and t ^ 2 are the types a peg jumping over one of type t is on
+			int needed = t == TARGET_TYPE ? 1 : 0;
+			if(count[t] > needed && count[t ^ 1] == 0 && count[t ^ 2] == 0)
+				return false;
+		}
+		if(Long.bitCount(pegs) == 2)
+			return pegs == FINAL[0] || pegs == FINAL[1] || pegs == FINAL[2] || pegs == FINAL[3];
+		return true;
+	}
+
+	//The cells of a position
+	private static long grid(long pegs)
+	{
+		long cells = 0;
+		for(int c = 0 ; c < GRID.length ; c ++)
+			cells |= GRID[c][(int)(pegs >>> (c * 8)) & 0xFF];
+		return cells;
+	}
+
+	//Cells the given cells could ever fill, jumping among themselves only. Each
+	//pass lands every jump down, up, right and left at once. With stop set, the
+	//passes end as soon as one of its cells is filled
+	private static long closure(long cells, long stop)
+	{
+		while(true)
+		{
+			long next = cells
+				| ((cells << 2*W) & (cells << W))
+				| ((cells >>> 2*W) & (cells >>> W))
+				| ((cells << 2) & (cells << 1) & FROM_LEFT[2])
+				| ((cells >>> 2) & (cells >>> 1) & FROM_RIGHT[2]);
+			next &= BOARD;
+			if(next == cells || next == BOARD || (next & stop) != 0)
+				return next;
+			cells = next;
+		}
+	}
+
+	//The cells at most two cells along a row or column from the given ones
+	private static long grow(long part)
+	{
+		return part | (part << W) | (part << 2*W) | (part >>> W) | (part >>> 2*W)
+			| ((part << 1) & FROM_LEFT[1]) | ((part << 2) & FROM_LEFT[2])
+			| ((part >>> 1) & FROM_RIGHT[1]) | ((part >>> 2) & FROM_RIGHT[2]);
+	}
+
+	//The cells of set joined to the lowest one by steps of at most two cells
+	//along a row or column, staying inside set
+	private static long part(long set)
+	{
+		long part = set & -set;
+		while(true)
+		{
+			long next = grow(part) & set;
+			if(next == part)
+				return part;
+			part = next;
+		}
+	}
+
+	//Whether the cells of targets are joined to start the same way, staying
+	//inside set. Stops as soon as they are all reached
+	private static boolean joins(long set, long start, long targets)
+	{
+		long part = start;
+		while((part & targets) != targets)
+		{
+			long next = grow(part) & set;
+			if(next == part)
+				return false;
+			part = next;
+		}
+		return true;
+	}
+
+	//False if the holes the pegs of the current position could ever fill fall
+	//into parts that can never meet, or miss the centre
+	public boolean connected()
+	{
+		long cells = grid(pegs);
+		//Whether the pegs are one part is only worked out for the start, and
+		//after that only around the moves made while they stay one part
+		boolean onePart;
+		if(depth == 0)
+			onePart = part(cells) == cells;
+		else if(linked[depth-1])
+		{
+			int m = moveAt[depth-1];
+			onePart = joins(cells, TO_CELL[m], cells & NEAR_CELLS[m]);
+		}
+		else
+			onePart = false;
+		linked[depth] = onePart;
+		if(onePart)
+		{
+			//Every cell the closure adds is two cells from one it had, so pegs in
+			//one part give a closure in one part. The centre is in it if it has a
+			//peg, two pegs lined up to jump into it, or the closure gets there
+			if((pegs & BitBoard.CENTRE_MASK) != 0)
+				return true;
+			for(int f = 0 ; f < FINAL.length ; f ++)
+			{
+				if((pegs & FINAL[f]) == FINAL[f])
+					return true;
+			}
+			return (closure(cells, CENTRE_CELL) & CENTRE_CELL) != 0;
+		}
+		long reach = closure(cells, 0);
+		return (reach & CENTRE_CELL) != 0 && part(reach) == reach;
+	}
+}
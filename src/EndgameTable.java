@@ -0,0 +1,195 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Stack;
+
+/*
+ * Every winning position with at most maxPegs pegs, held in memory so that the
+ * launchers can decide the last levels of a search with one lookup instead of
+ * searching them. Those levels hold few distinct positions but are reached from
+ * most nodes of the tree, which makes them most of what a search expands.
+ *
+ * The levels are those of RetrogradeEnumerator, sorted arrays of canonical keys
+ * per peg count. They are either built at startup by taking jumps back from the
+ * centre, or read from a directory the enumerator has written. Once built the
+ * table is never changed, so solvers on any number of threads share one.
+ */
+class EndgameTable {
+	//Sorted canonical keys of every level, by peg count
+	private long level[][];
+	private int maxPegs;
+	//Time taken to build or read the levels
+	long buildMillis;
+
+	private static EndgameTable shared;
+	private static boolean opened = false;
+
+	private EndgameTable(int maxPegs)
+	{
+		this.maxPegs = maxPegs;
+		level = new long[maxPegs + 1][];
+	}
+
+	//Builds the levels from one peg up to maxPegs
+	static EndgameTable build(int maxPegs)
+	{
+		long startTime = System.currentTimeMillis();
+		EndgameTable table = new EndgameTable(maxPegs);
+		table.level[1] = new long[] { BitBoard.CENTRE_MASK };
+		for(int pegs = 2 ; pegs <= maxPegs ; pegs ++)
+			table.level[pegs] = table.buildLevel(table.level[pegs - 1]);
+		table.buildMillis = System.currentTimeMillis() - startTime;
+		return table;
+	}
+
+	//Reads the levels from one peg up to maxPegs from the files of a
+	//RetrogradeEnumerator. Fails if one of them is missing
+	static EndgameTable load(File dir, int maxPegs) throws IOException
+	{
+		long startTime = System.currentTimeMillis();
+		EndgameTable table = new EndgameTable(maxPegs);
+		for(int pegs = 1 ; pegs <= maxPegs ; pegs ++)
+		{
+			File file = RetrogradeEnumerator.levelFile(dir, pegs);
+			long keys[] = new long[(int) (file.length() / 8)];
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+			for(int i = 0 ; i < keys.length ; i ++)
+				keys[i] = in.readLong();
+			in.close();
+			table.level[pegs] = keys;
+		}
+		table.buildMillis = System.currentTimeMillis() - startTime;
+		return table;
+	}
+
+	//The table for -Dpeg.endgamePegs (0, the default, for none), read from
+	//-Dpeg.endgameDir if it is set and built otherwise. Every solver shares it
+	static synchronized EndgameTable fromProperties()
+	{
+		if(!opened)
+		{
+			opened = true;
+			int maxPegs = Integer.getInteger("peg.endgamePegs", 0);
+			String dir = System.getProperty("peg.endgameDir");
+			if(maxPegs > BitBoard.HOLES)
+				throw new IllegalArgumentException("peg.endgamePegs is at most " + BitBoard.HOLES);
+			if(maxPegs > 0 && dir != null)
+			{
+				try
+				{
+					shared = load(new File(dir), maxPegs);
+				}
+				catch(IOException e)
+				{
+					throw new IllegalStateException("Cannot read endgame levels from " + dir, e);
+				}
+			}
+			else if(maxPegs > 0)
+			{
+				shared = build(maxPegs);
+			}
+		}
+		return shared;
+	}
+
+	//Takes every jump of a level back, giving the distinct keys of the next one
+	private long[] buildLevel(long previous[])
+	{
+		long next[] = new long[Math.max(1024, previous.length * 4)];
+		int fill = 0;
+		for(int i = 0 ; i < previous.length ; i ++)
+		{
+			long key = previous[i];
+			for(int m = 0 ; m < BitBoard.MOVES ; m ++)
+			{
+				//The jump m could have been the last one: a peg on its to hole only
+				if((key & BitBoard.MOVE_MASK[m]) != BitBoard.MOVE_EMPTY[m])
+					continue;
+				if(fill == next.length)
+				{
+					fill = distinct(next, fill);
+					if(fill > next.length / 2)
+						next = Arrays.copyOf(next, next.length * 2);
+				}
+				next[fill++] = Symmetry.canonical(key ^ BitBoard.MOVE_MASK[m]);
+			}
+		}
+		return Arrays.copyOf(next, distinct(next, fill));
+	}
+
+	//Sorts the first fill keys and packs the distinct ones at the front. Returns
+	//how many there are
+	private static int distinct(long keys[], int fill)
+	{
+		Arrays.sort(keys, 0, fill);
+		int n = 0;
+		for(int i = 0 ; i < fill ; i ++)
+		{
+			if(n == 0 || keys[i] != keys[n-1])
+				keys[n++] = keys[i];
+		}
+		return n;
+	}
+
+	public int getMaxPegs()
+	{
+		return maxPegs;
+	}
+
+	//Whether the centre finish can be reached from a position of at most maxPegs pegs
+	public boolean contains(long pegs)
+	{
+		int n = Long.bitCount(pegs);
+		return n >= 1 && n <= maxPegs && Arrays.binarySearch(level[n], Symmetry.canonical(pegs)) >= 0;
+	}
+
+	//Pushes the moves of a winning line from a position in the table onto moves
+	public void finishLine(long pegs, Stack<pair> moves)
+	{
+		while(Long.bitCount(pegs) > 1)
+		{
+			int m = 0;
+			while(!BitBoard.isLegal(pegs, m) || !contains(pegs ^ BitBoard.MOVE_MASK[m]))
+				m++;
+			moves.push(new pair(BitBoard.MOVE_FROM[m], BitBoard.MOVE_TO[m]));
+			pegs ^= BitBoard.MOVE_MASK[m];
+		}
+	}
+
+	//Number of positions held, up to symmetry
+	public long size()
+	{
+		long size = 0;
+		for(int pegs = 1 ; pegs <= maxPegs ; pegs ++)
+			size += level[pegs].length;
+		return size;
+	}
+
+	//Memory taken by the keys
+	public long bytes()
+	{
+		return size() * 8;
+	}
+
+	//One line on the size of the table and the time it took, for the launchers
+	public String describe()
+	{
+		return "Endgame table: up to "+maxPegs+" pegs, "+size()+" positions, "
+			+bytes()/1024+" KB, ready in "+buildMillis+" milliSeconds";
+	}
+
+	public static void main(String[] args) throws Exception {
+		if(args.length < 1 || args.length > 2)  {
+			System.err.println("usage: EndgameTable <maxPegs> [levelDir]");
+			return;
+		}
+		int maxPegs = Integer.parseInt(args[0]);
+		EndgameTable table = args.length > 1 ? load(new File(args[1]), maxPegs) : build(maxPegs);
+		for(int pegs = 1 ; pegs <= maxPegs ; pegs ++)
+			System.out.println(pegs+" pegs: "+table.level[pegs].length+" positions up to symmetry");
+		System.out.println(table.describe());
+	}
+}
@@ -0,0 +1,14 @@
+/*
+ * Orders the open list of BestFirstLauncher. Every jump removes exactly one peg,
+ * so nPegs - 1 is both an admissible and an exact estimate of the jumps left on
+ * any winning line, and g + h is the same for every node. The search therefore
+ * breaks those ties on the penalty returned here: lower penalties are expanded
+ * first.
+ */
+interface Heuristic {
+	//Largest penalty a heuristic may return
+	int MAX_PENALTY = 255;
+
+	//Tie-break penalty of a position, between 0 and MAX_PENALTY
+	int penalty(long pegs);
+}
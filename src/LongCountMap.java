@@ -0,0 +1,132 @@
+/*
+ * A thread-safe map from long keys to unsigned 128-bit counts, for the tasks of
+ * SolutionCounter. Keys are spread over segments by their hash, and each
+ * segment is an open-addressing table growing by doubling when half full,
+ * locked as a whole. Counts are kept as two longs, the low and the high word.
+ * The key 0 is reserved for empty slots.
+ */
+class LongCountMap {
+	private static final int SEGMENT_BITS = 6;
+
+	private Segment segments[] = new Segment[1 << SEGMENT_BITS];
+
+	public LongCountMap(int capacity)
+	{
+		for(int s = 0 ; s < segments.length ; s ++)
+			segments[s] = new Segment(capacity >> SEGMENT_BITS);
+	}
+
+	private static long hash(long key)
+	{
+		long h = key * 0x9E3779B97F4A7C15L;
+		return h ^ (h >>> 32);
+	}
+
+	private Segment segment(long h)
+	{
+		return segments[(int)(h >>> (64 - SEGMENT_BITS))];
+	}
+
+	//Copies the count of key into count, low word first. Returns false if the key
+	//is absent
+	public boolean get(long key, long count[])
+	{
+		long h = hash(key);
+		return segment(h).get(key, (int)h, count);
+	}
+
+	public void put(long key, long low, long high)
+	{
+		long h = hash(key);
+		segment(h).put(key, (int)h, low, high);
+	}
+
+	public long size()
+	{
+		long size = 0;
+		for(int s = 0 ; s < segments.length ; s ++)
+			size += segments[s].size();
+		return size;
+	}
+
+	static class Segment
+	{
+		private long keys[];
+		private long low[];
+		private long high[];
+		private int mask;
+		private int size;
+
+		Segment(int capacity)
+		{
+			int slots = Integer.highestOneBit(Math.max(capacity, 8) * 2 - 1);
+			keys = new long[slots];
+			low = new long[slots];
+			high = new long[slots];
+			mask = slots - 1;
+		}
+
+		synchronized boolean get(long key, int h, long count[])
+		{
+			int s = h & mask;
+			while(keys[s] != 0)
+			{
+				if(keys[s] == key)
+				{
+					count[0] = low[s];
+					count[1] = high[s];
+					return true;
+				}
+				s = (s + 1) & mask;
+			}
+			return false;
+		}
+
+		synchronized void put(long key, int h, long lo, long hi)
+		{
+			int s = h & mask;
+			while(keys[s] != 0)
+			{
+				if(keys[s] == key)
+				{
+					low[s] = lo;
+					high[s] = hi;
+					return;
+				}
+				s = (s + 1) & mask;
+			}
+			keys[s] = key;
+			low[s] = lo;
+			high[s] = hi;
+			if(++size * 2 > keys.length)
+				grow();
+		}
+
+		private void grow()
+		{
+			long oldKeys[] = keys;
+			long oldLow[] = low;
+			long oldHigh[] = high;
+			keys = new long[oldKeys.length * 2];
+			low = new long[oldKeys.length * 2];
+			high = new long[oldKeys.length * 2];
+			mask = keys.length - 1;
+			for(int i = 0 ; i < oldKeys.length ; i ++)
+			{
+				if(oldKeys[i] == 0)
+					continue;
+				int s = (int)hash(oldKeys[i]) & mask;
+				while(keys[s] != 0)
+					s = (s + 1) & mask;
+				keys[s] = oldKeys[i];
+				low[s] = oldLow[i];
+				high[s] = oldHigh[i];
+			}
+		}
+
+		synchronized int size()
+		{
+			return size;
+		}
+	}
+}
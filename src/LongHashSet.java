@@ -0,0 +1,128 @@
+import java.util.Arrays;
+
+/*
+ * An open-addressing set of longs with a fixed memory budget, used by the solvers
+ * to remember positions already proven dead. Keys live in a single long[] with
+ * linear probing over a short window; when the window of a new key is full, one
+ * of the eviction policies below makes room, so the table never grows past the
+ * budget it was created with. The key 0 (an empty board) is never stored.
+ */
+class LongHashSet {
+	//Overwrite the home slot of the new key when its probe window is full
+	static final int EVICT_REPLACE = 0;
+	//Empty the whole table when it is full
+	static final int EVICT_CLEAR = 1;
+	//Number of slots looked at for a key before it counts as absent
+	private static final int PROBES = 8;
+
+	private long keys[];
+	private int mask;
+	private int shift;
+	private int size;
+	private int policy;
+	//lookup statistics
+	long hits;
+	long misses;
+	long evictions;
+
+	//Creates a set using at most maxBytes of key storage
+	public LongHashSet(long maxBytes, int policy)
+	{
+		long slots = Long.highestOneBit(Math.max(maxBytes / 8, 16));
+		if(slots > (1 << 30))
+			slots = 1 << 30;
+		keys = new long[(int)slots];
+		mask = (int)slots - 1;
+		shift = 64 - Long.numberOfTrailingZeros(slots);
+		this.policy = policy;
+	}
+
+	//Builds the dead-position cache configured by -Dpeg.cacheMB (default 64, 0 turns
+	//the cache off) and -Dpeg.cacheEvict (replace or clear)
+	static LongHashSet fromProperties()
+	{
+		int cacheMB = Integer.getInteger("peg.cacheMB", 64);
+		if(cacheMB <= 0)
+			return null;
+		int policy = "clear".equals(System.getProperty("peg.cacheEvict")) ? EVICT_CLEAR : EVICT_REPLACE;
+		return new LongHashSet(cacheMB * 1024L * 1024L, policy);
+	}
+
+	private int home(long key)
+	{
+		return (int)((key * 0x9E3779B97F4A7C15L) >>> shift);
+	}
+
+	//Checks for a key, counting the lookup as a hit or a miss
+	public boolean contains(long key)
+	{
+		int slot = home(key);
+		for(int p = 0 ; p < PROBES ; p ++)
+		{
+			long k = keys[(slot + p) & mask];
+			if(k == key)
+			{
+				hits++;
+				return true;
+			}
+			if(k == 0)
+				break;
+		}
+		misses++;
+		return false;
+	}
+
+	//Adds a key, evicting according to the policy if there is no room for it
+	public void add(long key)
+	{
+		if(key == 0)
+			return;
+		int slot = home(key);
+		for(int p = 0 ; p < PROBES ; p ++)
+		{
+			int s = (slot + p) & mask;
+			if(keys[s] == key)
+				return;
+			if(keys[s] == 0)
+			{
+				//Clear first at the 75% mark, so the new key survives the clear
+				if(policy == EVICT_CLEAR && size + 1 > mask - (mask >> 2))
+					break;
+				keys[s] = key;
+				size++;
+				return;
+			}
+		}
+		if(policy == EVICT_CLEAR)
+		{
+			evictions += size;
+			clear();
+			keys[slot] = key;
+			size = 1;
+		}
+		else
+		{
+			evictions++;
+			keys[slot] = key;
+		}
+	}
+
+	//Number of keys currently stored
+	public int size()
+	{
+		return size;
+	}
+
+	//Size of the key table in bytes
+	public long bytes()
+	{
+		return 8L * keys.length;
+	}
+
+	//Forgets every key. The statistics are kept
+	public void clear()
+	{
+		Arrays.fill(keys, 0);
+		size = 0;
+	}
+}
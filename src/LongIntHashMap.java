@@ -0,0 +1,99 @@
+import java.util.Arrays;
+
+/*
+ * An open-addressing map from long keys to int values, growing by doubling
+ * when half full. The key 0 is reserved for empty slots.
+ */
+class LongIntHashMap {
+	private long keys[];
+	private int values[];
+	private int mask;
+	private int size;
+
+	public LongIntHashMap(int capacity)
+	{
+		int slots = Integer.highestOneBit(Math.max(capacity, 8) * 2 - 1);
+		keys = new long[slots];
+		values = new int[slots];
+		mask = slots - 1;
+	}
+
+	private static int hash(long key)
+	{
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int)(h ^ (h >>> 32));
+	}
+
+	//Value stored for key, or missing if there is none
+	public int get(long key, int missing)
+	{
+		int s = hash(key) & mask;
+		while(keys[s] != 0)
+		{
+			if(keys[s] == key)
+				return values[s];
+			s = (s + 1) & mask;
+		}
+		return missing;
+	}
+
+	public boolean containsKey(long key)
+	{
+		int s = hash(key) & mask;
+		while(keys[s] != 0)
+		{
+			if(keys[s] == key)
+				return true;
+			s = (s + 1) & mask;
+		}
+		return false;
+	}
+
+	public void put(long key, int value)
+	{
+		int s = hash(key) & mask;
+		while(keys[s] != 0)
+		{
+			if(keys[s] == key)
+			{
+				values[s] = value;
+				return;
+			}
+			s = (s + 1) & mask;
+		}
+		keys[s] = key;
+		values[s] = value;
+		if(++size * 2 > keys.length)
+			grow();
+	}
+
+	private void grow()
+	{
+		long oldKeys[] = keys;
+		int oldValues[] = values;
+		keys = new long[oldKeys.length * 2];
+		values = new int[oldKeys.length * 2];
+		mask = keys.length - 1;
+		for(int i = 0 ; i < oldKeys.length ; i ++)
+		{
+			if(oldKeys[i] == 0)
+				continue;
+			int s = hash(oldKeys[i]) & mask;
+			while(keys[s] != 0)
+				s = (s + 1) & mask;
+			keys[s] = oldKeys[i];
+			values[s] = oldValues[i];
+		}
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public void clear()
+	{
+		Arrays.fill(keys, 0);
+		size = 0;
+	}
+}
@@ -0,0 +1,73 @@
+import java.util.Arrays;
+
+/*
+ * A binary min-heap of longs in a single array. The best-first search packs
+ * a node's priority into the high bits and its board into the low bits, so
+ * ordering the nodes is ordering the longs.
+ */
+class LongMinHeap {
+	private long heap[];
+	private int size;
+
+	public LongMinHeap(int capacity)
+	{
+		heap = new long[Math.max(capacity, 16)];
+	}
+
+	public void push(long value)
+	{
+		if(size == heap.length)
+			heap = Arrays.copyOf(heap, size * 2);
+		int i = size++;
+		while(i > 0)
+		{
+			int parent = (i - 1) >> 1;
+			if(heap[parent] <= value)
+				break;
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = value;
+	}
+
+	public long pop()
+	{
+		long top = heap[0];
+		long last = heap[--size];
+		int i = 0;
+		while(true)
+		{
+			int child = 2 * i + 1;
+			if(child >= size)
+				break;
+			if(child + 1 < size && heap[child + 1] < heap[child])
+				child++;
+			if(heap[child] >= last)
+				break;
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = last;
+		return top;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	//The i-th value in heap order, for walking every entry
+	public long get(int i)
+	{
+		return heap[i];
+	}
+
+	//Keeps only the best keep values. A sorted array is a valid heap
+	public void truncate(int keep)
+	{
+		if(keep >= size)
+			return;
+		Arrays.sort(heap, 0, size);
+		size = keep;
+	}
+}
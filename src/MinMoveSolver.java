@@ -0,0 +1,587 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Stack;
+
+/*
+ * Finds a winning line with the fewest moves, where a move is a chain of jumps
+ * by one peg: the standard board takes 18. The search is IDA* on that count. A
+ * jump is free when it is made by the peg that landed last, so the state is the
+ * position together with that landing hole.
+ *
+ * The lower bound counts moves that must still start somewhere, and is the
+ * larger of two counts:
+ *  - a peg in one of the 8 corners of the arms can never be jumped over, so it
+ *    has to leave by jumping, each in a move of its own. A full region that no
+ *    jump from outside can take a peg from needs a move started inside it, and
+ *    disjoint regions need different moves. The regions hold no corner, so these
+ *    add up;
+ *  - a peg only ever jumps over pegs on holes of the other colour of a
+ *    chessboard, so while pegs of both colours are left to take, a move by a peg
+ *    of each colour is needed. The corners are all one colour.
+ * Neither counts for the peg that landed last, as it can go on for free.
+ *
+ * Every state that failed is kept with the number of moves that was not enough
+ * for it, in one table shared by all iterations: a later iteration only searches
+ * it again with more moves to spare. A state with the last peg free to go on has
+ * at most one move fewer to spare than the same pegs without it. Pagoda
+ * functions and dead patterns cut positions that cannot be won at all, as in
+ * DFSLauncher.
+ */
+class MinMoveSolver implements PegSolver {
+	//Holes of the arm corners
+	private static final long CORNERS;
+	//Holes whose row and column add up to an even number, and to an odd one
+	private static final long EVEN;
+	private static final long ODD;
+	//Holes in a row and a column of the same parity as the centre's, the ones the
+	//last peg can be on
+	private static final long LAST_PEG;
+	//Regions no jump from outside can take a peg from while they are full, none
+	//holding a corner: the 2x2 squares, the Ls at the inside corners of the cross
+	//and the staircases across the centre. These are all such regions of up to 9
+	//holes that hold no smaller one; the 3x3 block holds 4 squares and adds nothing
+	private static final long REGION[];
+	//Most disjoint regions in every set of them, by bit mask of region indexes
+	private static final byte PACKING[];
+	//State key bits above the pegs, holding the landing hole plus one
+	private static final int LAST_SHIFT = BitBoard.HOLES;
+
+	static
+	{
+		long corners = 0;
+		long even = 0;
+		long lastPeg = 0;
+		for(int h = 0 ; h < BitBoard.HOLES ; h ++)
+		{
+			int i = BitBoard.ROW[h];
+			int j = BitBoard.COL[h];
+			if((i == 0 || i == BitBoard.N - 1 || j == 0 || j == BitBoard.N - 1)
+				&& (i == 2 || i == 4 || j == 2 || j == 4))
+				corners |= 1L << h;
+			if((i + j) % 2 == 0)
+				even |= 1L << h;
+			if(i % 2 == BitBoard.ROW[BitBoard.CENTRE] % 2 && j % 2 == BitBoard.COL[BitBoard.CENTRE] % 2)
+				lastPeg |= 1L << h;
+		}
+		CORNERS = corners;
+		EVEN = even;
+		ODD = BitBoard.ALL & ~even;
+		LAST_PEG = lastPeg;
+		List<Long> regions = new ArrayList<Long>();
+		//Every 2x2 window with no corner and at most one cell off the board: the
+		//squares, and the L of 3 holes at each inside corner of the cross
+		for(int i = 0 ; i + 1 < BitBoard.N ; i ++)
+		{
+			for(int j = 0 ; j + 1 < BitBoard.N ; j ++)
+			{
+				int square[] = { BitBoard.HOLE[i][j], BitBoard.HOLE[i][j+1], BitBoard.HOLE[i+1][j], BitBoard.HOLE[i+1][j+1] };
+				long mask = 0;
+				int holes = 0;
+				for(int k = 0 ; k < 4 ; k ++)
+				{
+					if(square[k] >= 0)
+					{
+						mask |= 1L << square[k];
+						holes++;
+					}
+				}
+				if(holes >= 3 && (mask & CORNERS) == 0 && forcing(mask))
+					regions.add(mask);
+			}
+		}
+		//The 4 staircases of 7 holes across the centre, each going from one inside
+		//corner to the opposite arm
+		int c = BitBoard.ROW[BitBoard.CENTRE];
+		for(int di = -1 ; di <= 1 ; di += 2)
+		{
+			for(int dj = -1 ; dj <= 1 ; dj += 2)
+			{
+				int i = c - 2 * di;
+				int j = c - dj;
+				long mask = 0;
+				for(int k = 0 ; k < 7 ; k ++)
+				{
+					mask |= 1L << BitBoard.HOLE[i][j];
+					if(k % 2 == 0)
+						i += di;
+					else
+						j += dj;
+				}
+				if(forcing(mask))
+					regions.add(mask);
+			}
+		}
+		REGION = new long[regions.size()];
+		for(int r = 0 ; r < REGION.length ; r ++)
+			REGION[r] = regions.get(r);
+		//A set packs the most regions either without its lowest one, or with it and
+		//without those it overlaps
+		PACKING = new byte[1 << REGION.length];
+		for(int set = 1 ; set < PACKING.length ; set ++)
+		{
+			int r = Integer.numberOfTrailingZeros(set);
+			int overlapping = 0;
+			for(int q = 0 ; q < REGION.length ; q ++)
+			{
+				if((REGION[q] & REGION[r]) != 0)
+					overlapping |= 1 << q;
+			}
+			PACKING[set] = (byte) Math.max(PACKING[set & ~(1 << r)], 1 + PACKING[set & ~overlapping]);
+		}
+	}
+
+	//The input board, used for its layout when displaying
+	private char board[][];
+	//The intermediate board, one bit per hole
+	private long pegs;
+	private boolean done;
+	private int numPegs;
+	Stack<pair> moves;
+	//Set when the start position is outside the class of the centre finish
+	boolean rejected = false;
+	//Moves of the winning line, once found
+	int moveCount = 0;
+	//Number of moves the current iteration allows
+	private int bound;
+	int iterations = 0;
+	//Moves still to spare that were not enough, by state key, DEAD for states
+	//that failed without the bound playing a part
+	LongIntHashMap failed;
+	//The table before failed last filled up, still looked at
+	private LongIntHashMap older;
+	private static final int DEAD = Integer.MAX_VALUE;
+	//Set when the bound cut something below the state being searched
+	private boolean boundHit;
+	//Entries a generation of the table holds
+	private int maxEntries;
+	PagodaSet pagodas;
+	DeadPatterns patterns;
+	//winning positions with few pegs, -Dpeg.endgamePegs
+	EndgameTable endgame;
+	long boundPrunes = 0;
+	long tablePrunes = 0;
+	long pagodaPrunes = 0;
+	long patternPrunes = 0;
+	//Jump made at each depth of the current line, as move ids
+	private int path[];
+	private int depth = 0;
+	int maxDepth = 0;
+	long expandedNodes = 0;
+	SolverMetrics metrics;
+	//Set from another thread to stop the search early
+	private volatile boolean cancelled = false;
+	//Wall-clock deadline and node budget of the running search, 0 for none
+	private long deadline;
+	private long maxNodes;
+	//Node count at which the limits are next looked at
+	private long nextCheck;
+	//Set once a limit has stopped the search
+	private boolean stopped;
+	private SolveResult result;
+	//Nodes between two looks at the clock and the cancel flag
+	private static final int CHECK_INTERVAL = 4096;
+
+	public MinMoveSolver(String boardState[])
+	{
+		moves = new Stack<pair>();
+		board = new char[BitBoard.N][BitBoard.N];
+		failed = new LongIntHashMap(1 << 16);
+		older = new LongIntHashMap(8);
+		//A generation is handed over when half its slots are used, just before the map
+		//would double. The older generation, the full one and its doubled copy take
+		//2.5 times its slots of 12 bytes at most, within -Dpeg.tableMB
+		long slots = Long.highestOneBit(Integer.getInteger("peg.tableMB", 512) * 1024L * 1024L / 30);
+		maxEntries = (int) Math.min(slots / 2, 1 << 26);
+		pagodas = PagodaSet.fromProperties();
+		patterns = DeadPatterns.fromProperties();
+		endgame = EndgameTable.fromProperties();
+		metrics = new SolverMetrics("MinMoveSolver");
+		path = new int[BitBoard.HOLES + 1];
+		reset(boardState);
+	}
+
+	//Loads a new board. The failed states are kept, they do not depend on the start
+	public void reset(String boardState[])
+	{
+		moves.clear();
+		done = false;
+		rejected = false;
+		cancelled = false;
+		stopped = false;
+		result = null;
+		moveCount = 0;
+		iterations = 0;
+		expandedNodes = 0;
+		maxDepth = 0;
+		depth = 0;
+		boundPrunes = 0;
+		tablePrunes = 0;
+		pagodaPrunes = 0;
+		patternPrunes = 0;
+		for(int i = 0 ; i < BitBoard.N ; i ++)
+			for(int j = 0 ; j < BitBoard.N ; j ++)
+				board[i][j] = boardState[i].charAt(j);
+		pegs = BitBoard.fromBoard(board);
+		numPegs = Long.bitCount(pegs);
+	}
+
+	public boolean isSolved()
+	{
+		return done;
+	}
+
+	public Stack<pair> getMoves()
+	{
+		return moves;
+	}
+
+	public long getExpandedNodes()
+	{
+		return expandedNodes;
+	}
+
+	public SolveResult getResult()
+	{
+		return result;
+	}
+
+	public SolverMetrics getMetrics()
+	{
+		return metrics;
+	}
+
+	public BoardTopology getTopology()
+	{
+		return BoardTopology.ENGLISH;
+	}
+
+	public int getDepth()
+	{
+		return depth;
+	}
+
+	public long getPosition()
+	{
+		return pegs;
+	}
+
+	public int getLine(int line[])
+	{
+		int n = Math.min(depth, line.length);
+		System.arraycopy(path, 0, line, 0, n);
+		return n;
+	}
+
+	public void cancel()
+	{
+		cancelled = true;
+	}
+
+	//Holes are numbered as by getPegNumber in the launchers
+	public int getPegNumber(int i , int j)
+	{
+		return BitBoard.TOPOLOGY.holeAt(i, j);
+	}
+
+	//As in DFSLauncher, the limits are looked at once every CHECK_INTERVAL nodes
+	private boolean limitReached()
+	{
+		if(cancelled || (maxNodes > 0 && expandedNodes >= maxNodes)
+			|| (deadline > 0 && System.currentTimeMillis() >= deadline))
+		{
+			stopped = true;
+			return true;
+		}
+		nextCheck = expandedNodes + CHECK_INTERVAL;
+		if(maxNodes > 0 && nextCheck > maxNodes)
+			nextCheck = maxNodes;
+		return false;
+	}
+
+	public void solveGame() throws Exception
+	{
+		solveGame(0, 0);
+	}
+
+	public SolveResult solveGame(long deadline, long maxNodes) throws Exception
+	{
+		this.deadline = deadline;
+		this.maxNodes = maxNodes;
+		nextCheck = 0;
+		metrics.begin(null, null);
+		if(numPegs == 0 || !PositionClass.canReachCentre(pegs))
+		{
+			rejected = true;
+		}
+		else if(pagodas != null && !pagodas.reset(pegs))
+		{
+			pagodaPrunes++;
+		}
+		else if(patterns != null && !patterns.reset(pegs))
+		{
+			patternPrunes++;
+		}
+		else
+		{
+			//A line never has more moves than jumps
+			for(bound = lowerBound(pegs, -1) ; bound <= numPegs - 1 && !done && !stopped ; bound ++)
+			{
+				iterations++;
+				search(numPegs, -1, 0);
+			}
+		}
+		result = done ? SolveResult.SOLVED : stopped ? SolveResult.BUDGET_EXCEEDED : SolveResult.NO_SOLUTION;
+		metrics.end(result, rejected, expandedNodes, maxDepth, pagodaPrunes, patternPrunes, null, null);
+		return result;
+	}
+
+	//Whether no jump can take a peg from the region while it is full, unless it
+	//starts there: every jump over one of its holes starts or lands in it
+	private static boolean forcing(long region)
+	{
+		for(int m = 0 ; m < BitBoard.MOVES ; m ++)
+		{
+			long over = BitBoard.MOVE_MASK[m] & ~(1L << BitBoard.MOVE_FROM[m]) & ~(1L << BitBoard.MOVE_TO[m]);
+			if((over & region) != 0 && (BitBoard.MOVE_MASK[m] & ~over & region) == 0)
+				return false;
+		}
+		return true;
+	}
+
+	//Moves that must still start on a position, the peg on hole last being free
+	//to go on
+	private static int lowerBound(long pegs, int last)
+	{
+		long free = last >= 0 && canJump(pegs, last) ? 1L << last : 0;
+		int full = 0;
+		for(int r = 0 ; r < REGION.length ; r ++)
+		{
+			if((pegs & REGION[r]) == REGION[r] && (free & REGION[r]) == 0)
+				full |= 1 << r;
+		}
+		int corners = Long.bitCount(pegs & CORNERS & ~free);
+		//A move by a peg on an even hole only takes pegs on odd holes, and the other
+		//way round. One of each kind is needed while there are pegs to take on both,
+		//the last peg left being on a hole of the centre's rows and columns. The
+		//corners are even, so their moves take odd pegs too
+		int takeOdd = (pegs & ODD) != 0 && (free & EVEN) == 0 ? 1 : 0;
+		int takeEven = (Long.bitCount(pegs & EVEN) > 1 || (pegs & EVEN & ~LAST_PEG) != 0) && (free & ODD) == 0 ? 1 : 0;
+		return Math.max(corners + PACKING[full], Math.max(corners, takeOdd) + takeEven);
+	}
+
+	//Whether the peg on hole last has a jump
+	private static boolean canJump(long pegs, int last)
+	{
+		for(int m = BitBoard.FIRST_MOVE[last] ; m < BitBoard.FIRST_MOVE[last+1] ; m ++)
+		{
+			if(BitBoard.isLegal(pegs, m))
+				return true;
+		}
+		return false;
+	}
+
+	//The state under its canonical transform. The landing hole goes along with
+	//the pegs, and is dropped once that peg cannot jump
+	private static long stateKey(long pegs, int last)
+	{
+		int t = Symmetry.canonicalTransform(pegs);
+		long key = Symmetry.transform(t, pegs);
+		if(last >= 0 && canJump(pegs, last))
+			key |= (long) (Symmetry.MAP[t][last] + 1) << LAST_SHIFT;
+		return key;
+	}
+
+	//Searches for a line of at most bound moves, used moves having been made. The
+	//peg on hole last, -1 for none, may jump on without starting a move
+	private void search(int nPegs, int last, int used)
+	{
+		if(done || stopped)
+			return;
+		if(used + lowerBound(pegs, last) > bound)
+		{
+			boundPrunes++;
+			boundHit = true;
+			return;
+		}
+		if(endgame != null && nPegs <= endgame.getMaxPegs() && !endgame.contains(pegs))
+			return;
+		int spare = bound - used;
+		long key = stateKey(pegs, last);
+		int known = known(key);
+		if(key >>> LAST_SHIFT != 0)
+		{
+			//The same pegs without a free peg, with one move more to spare
+			int without = known(key & BitBoard.ALL);
+			if(without == DEAD || without - 1 > known)
+				known = without == DEAD ? DEAD : without - 1;
+		}
+		if(known >= spare)
+		{
+			tablePrunes++;
+			if(known != DEAD)
+				boundHit = true;
+			return;
+		}
+		if(expandedNodes >= nextCheck && limitReached())
+			return;
+		expandedNodes++;
+		depth = numPegs - nPegs;
+		if(depth > maxDepth)
+			maxDepth = depth;
+		if(nPegs == 1)
+		{
+			if((pegs & BitBoard.CENTRE_MASK) != 0)
+			{
+				done = true;
+				moveCount = used;
+				metrics.solutionFound();
+				for(int d = 0 ; d < depth ; d ++)
+					moves.push(new pair(BitBoard.MOVE_FROM[path[d]], BitBoard.MOVE_TO[path[d]]));
+			}
+			return;
+		}
+		boolean outerHit = boundHit;
+		boundHit = spare == 0;
+		//The free jumps of the last peg first, then those starting a new move. Moves
+		//from a corner come before the others: the bound has counted them already,
+		//so starting one leaves the moves the line needs at least as they were
+		if(last >= 0)
+		{
+			for(int m = BitBoard.FIRST_MOVE[last] ; m < BitBoard.FIRST_MOVE[last+1] ; m ++)
+			{
+				if(BitBoard.isLegal(pegs, m))
+					tryMove(m, nPegs, used);
+			}
+		}
+		if(spare > 0)
+		{
+			long others = pegs & ~(last < 0 ? 0 : 1L << last);
+			startMoves(others & CORNERS, nPegs, used);
+			startMoves(others & ~CORNERS, nPegs, used);
+		}
+		//Not enough moves from here with spare to go, or none would be if the bound
+		//cut nothing
+		if(!done && !stopped)
+		{
+			//A full table becomes the older generation, dropping the one before
+			if(failed.size() >= maxEntries)
+			{
+				older = failed;
+				failed = new LongIntHashMap(1 << 16);
+			}
+			int value = boundHit ? spare : DEAD;
+			failed.put(key, value);
+			//The pegs alone, with no free peg, have failed with as much to spare
+			if(key >>> LAST_SHIFT != 0 && known(key & BitBoard.ALL) < value)
+				failed.put(key & BitBoard.ALL, value);
+		}
+		boundHit |= outerHit;
+	}
+
+	//Tries the jumps of the pegs on the holes of rest, each starting a new move
+	private void startMoves(long rest, int nPegs, int used)
+	{
+		while(rest != 0 && !done && !stopped)
+		{
+			int h = Long.numberOfTrailingZeros(rest);
+			rest &= rest - 1;
+			for(int m = BitBoard.FIRST_MOVE[h] ; m < BitBoard.FIRST_MOVE[h+1] ; m ++)
+			{
+				if(BitBoard.isLegal(pegs, m))
+					tryMove(m, nPegs, used + 1);
+			}
+		}
+	}
+
+	//Moves to spare a state is known not to be winnable with, -1 if none
+	private int known(long key)
+	{
+		return Math.max(failed.get(key, -1), older.get(key, -1));
+	}
+
+	//Makes the legal move m, searches on and takes it back
+	private void tryMove(int m, int nPegs, int used)
+	{
+		//unless a pagoda function or a dead pattern shows it cannot win
+		if(pagodas != null && !pagodas.make(m))
+		{
+			pagodaPrunes++;
+			pagodas.unmake(m);
+			return;
+		}
+		if(patterns != null && !patterns.make(m))
+		{
+			patternPrunes++;
+			patterns.unmake(m);
+			if(pagodas != null)
+				pagodas.unmake(m);
+			return;
+		}
+		pegs ^= BitBoard.MOVE_MASK[m];
+		path[numPegs - nPegs] = m;
+		search(nPegs - 1, BitBoard.MOVE_TO[m], used);
+		pegs ^= BitBoard.MOVE_MASK[m];
+		if(pagodas != null)
+			pagodas.unmake(m);
+		if(patterns != null)
+			patterns.unmake(m);
+	}
+
+	//Displays the winning path the way the launchers do, last jump first, with a
+	//bar between two moves
+	public void displaySolution()
+	{
+		if(!done)
+		{
+			System.out.print("No Winning path on this configuration");
+		}
+		int last = -1;
+		while(!moves.empty())
+		{
+			pair top = moves.pop();
+			if(last >= 0 && top.y != last)
+				System.out.print("| ");
+			System.out.print("( "+top.x+","+top.y+" )  ");
+			last = top.x;
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		int N = 7;
+		if(args.length != 1)  {
+			System.err.println("usage: MinMoveSolver <filePath>");
+			return;
+		}
+		String input[] = new String[N];
+		BoardReader in = new BoardReader(args[0], N);
+		if(!in.next(input))
+		{
+			System.err.println("No board in "+args[0]);
+			return;
+		}
+		in.close();
+		for(int i = 0 ; i < N ; i ++)
+			System.out.println(input[i]);
+		MinMoveSolver solver = new MinMoveSolver(input);
+		ProgressSampler sampler = ProgressSampler.fromProperties(solver);
+		long startTime = System.currentTimeMillis();
+		solver.solveGame();
+		long endTime = System.currentTimeMillis();
+		if(sampler != null)
+			sampler.finish();
+		solver.displaySolution();
+		System.out.println("\n***STATS***");
+		if(solver.done)
+			System.out.println("Moves: "+solver.moveCount);
+		System.out.println(endTime - startTime+" milliSeconds");
+		System.out.println("Nodes visited: "+solver.expandedNodes+"\nIterations: "+solver.iterations);
+		System.out.println("Bound prunes: "+solver.boundPrunes+"\nTable prunes: "+solver.tablePrunes
+			+"\nTable entries: "+solver.failed.size());
+		System.out.println("Pagoda prunes: "+solver.pagodaPrunes+"\nPattern prunes: "+solver.patternPrunes);
+		if(solver.rejected)
+			System.out.println("Rejected by the position class check");
+		String line = solver.metrics.format();
+		if(line != null)
+			System.out.println(line);
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * Adaptive move ordering for DFSLauncher, in place of its fixed row-major order.
+ * The history table scores every jump, that is every (from hole, direction) pair,
+ * by how far below the node the search went after making it, squared so that
+ * deep lines count for much more than shallow ones. Each depth also keeps two
+ * killer moves, the ones that went deepest at the last node of that depth, and
+ * tries them first when they are legal. Moves are scored and insertion sorted
+ * into arrays of their depth, so ordering needs no allocation and no look at the
+ * positions the moves lead to.
+ */
+class MoveHistory {
+	//The board whose jumps are ordered
+	private BoardTopology topology;
+	//Score of every move id, move ids stand for (from hole, direction)
+	private long history[];
+	//Two killer moves per depth, -1 for none
+	private int killer[][];
+	//Deepest gain seen at the current node of every depth
+	private int bestGain[];
+	//Legal moves of the node at every depth, best first, with their scores
+	private int candMove[][];
+	private long candScore[][];
+
+	public MoveHistory(BoardTopology topology)
+	{
+		this.topology = topology;
+		history = new long[topology.moves];
+		killer = new int[topology.holes + 1][2];
+		bestGain = new int[topology.holes + 1];
+		candMove = new int[topology.holes + 1][topology.moves];
+		candScore = new long[topology.holes + 1][topology.moves];
+		clearKillers();
+	}
+
+	//The ordering for -Dpeg.order=history, null for the fixed order (the default)
+	static MoveHistory fromProperties(BoardTopology topology)
+	{
+		String order = System.getProperty("peg.order", "fixed");
+		if(order.equals("history"))
+			return new MoveHistory(topology);
+		if(!order.equals("fixed"))
+			throw new IllegalArgumentException("Unknown move order " + order);
+		return null;
+	}
+
+	private void clearKillers()
+	{
+		for(int d = 0 ; d < killer.length ; d ++)
+		{
+			killer[d][0] = -1;
+			killer[d][1] = -1;
+		}
+	}
+
+	//Starts a new board: the killers are dropped and the history halved, so that
+	//what was learnt on earlier boards still helps but soon gives way
+	public void age()
+	{
+		for(int m = 0 ; m < history.length ; m ++)
+			history[m] >>= 1;
+		clearKillers();
+	}
+
+	//Sorts the legal moves of a position at depth, returning how many there are
+	public int order(long pegs, int depth)
+	{
+		int cMove[] = candMove[depth];
+		long cScore[] = candScore[depth];
+		int k0 = killer[depth][0];
+		int k1 = killer[depth][1];
+		bestGain[depth] = -1;
+		int n = 0;
+		long rest = pegs;
+		while(rest != 0)
+		{
+			int h = Long.numberOfTrailingZeros(rest);
+			rest &= rest - 1;
+			for(int m = topology.firstMove[h] ; m < topology.firstMove[h+1] ; m ++)
+			{
+				if(!topology.isLegal(pegs, m))
+					continue;
+				long score = m == k0 ? Long.MAX_VALUE : m == k1 ? Long.MAX_VALUE - 1 : history[m];
+				//Ties stay in the fixed order
+				int k = n++;
+				while(k > 0 && cScore[k-1] < score)
+				{
+					cScore[k] = cScore[k-1];
+					cMove[k] = cMove[k-1];
+					k--;
+				}
+				cScore[k] = score;
+				cMove[k] = m;
+			}
+		}
+		return n;
+	}
+
+	//The c-th best move of the node at depth
+	public int move(int depth, int c)
+	{
+		return candMove[depth][c];
+	}
+
+	//Records that the search went gain levels below depth after move m
+	public void update(int depth, int m, int gain)
+	{
+		history[m] += (long) gain * gain;
+		if(gain > bestGain[depth])
+		{
+			bestGain[depth] = gain;
+			if(killer[depth][0] != m)
+			{
+				killer[depth][1] = killer[depth][0];
+				killer[depth][0] = m;
+			}
+		}
+	}
+}
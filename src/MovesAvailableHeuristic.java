@@ -0,0 +1,24 @@
+/*
+ * The forward-checking heuristic of AStarLauncher: positions with fewer legal
+ * jumps come first, so that dead ends are found early.
+ */
+class MovesAvailableHeuristic implements Heuristic {
+	private BoardTopology topology;
+
+	//The heuristic for the English board
+	public MovesAvailableHeuristic()
+	{
+		this(BoardTopology.ENGLISH);
+	}
+
+	//The heuristic for any board
+	public MovesAvailableHeuristic(BoardTopology topology)
+	{
+		this.topology = topology;
+	}
+
+	public int penalty(long pegs)
+	{
+		return Math.min(topology.countMoves(pegs), MAX_PENALTY);
+	}
+}
@@ -0,0 +1,174 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Pagoda functions used to cut branches that can no longer reach the centre. A
+ * pagoda function gives every hole a weight such that no jump can increase the
+ * total weight of the pegs: w(to) <= w(from) + w(over) for every jump. If the
+ * total on a position is below the weight of the target hole, the single peg in
+ * the centre can never be reached from it.
+ *
+ * A set holds several such functions and their current totals for one search.
+ * The totals are kept up to date move by move, one addition per function.
+ */
+class PagodaSet {
+	//Weights symmetric under all 8 rotations and reflections, centre weight 1
+	static final String CLASSIC[] = {
+		"-1 1 -1",
+		"1 1 1",
+		"-1 1 0 1 0 1 -1",
+		"1 1 1 1 1 1 1",
+		"-1 1 0 1 0 1 -1",
+		"1 1 1",
+		"-1 1 -1"
+	};
+	//Weights leaning on the bottom arm. The set uses all 4 of its rotations
+	static final String ARM[] = {
+		"0 0 0",
+		"0 1 0",
+		"-1 1 0 1 0 1 -1",
+		"0 1 0 1 0 1 0",
+		"-1 1 0 1 0 1 -1",
+		"0 2 0",
+		"0 0 0"
+	};
+
+	//Weight of every hole under every function
+	private int weight[][];
+	//Change of every total for every move
+	private int delta[][];
+	//Weight of the target hole under every function
+	private int target[];
+	//Totals on the current position
+	private int value[];
+	private int count;
+
+	//Builds a set from weight tables laid out like the board, one row per line
+	public PagodaSet(String tables[][])
+	{
+		count = tables.length;
+		weight = new int[count][];
+		delta = new int[count][BitBoard.MOVES];
+		target = new int[count];
+		value = new int[count];
+		for(int p = 0 ; p < count ; p ++)
+		{
+			weight[p] = parse(tables[p]);
+			for(int m = 0 ; m < BitBoard.MOVES ; m ++)
+			{
+				delta[p][m] = weight[p][BitBoard.MOVE_TO[m]]
+					- weight[p][BitBoard.MOVE_FROM[m]] - weight[p][BitBoard.MOVE_OVER[m]];
+				if(delta[p][m] > 0)
+					throw new IllegalArgumentException("Not a pagoda function: jump "
+						+ BitBoard.MOVE_FROM[m] + "-" + BitBoard.MOVE_TO[m] + " gains weight");
+			}
+			target[p] = weight[p][BitBoard.CENTRE];
+		}
+	}
+
+	//Reads one weight per hole, row by row
+	private static int[] parse(String rows[])
+	{
+		int weight[] = new int[BitBoard.HOLES];
+		int h = 0;
+		for(int i = 0 ; i < rows.length ; i ++)
+		{
+			String cells[] = rows[i].trim().split("\\s+");
+			for(int c = 0 ; c < cells.length ; c ++)
+				weight[h++] = Integer.parseInt(cells[c]);
+		}
+		if(h != BitBoard.HOLES)
+			throw new IllegalArgumentException("Pagoda table has " + h + " weights");
+		return weight;
+	}
+
+	//The same weights turned by a quarter turn clockwise
+	private static String[] rotate(String rows[])
+	{
+		int weight[] = parse(rows);
+		int turned[] = new int[BitBoard.HOLES];
+		for(int h = 0 ; h < BitBoard.HOLES ; h ++)
+			turned[Symmetry.MAP[1][h]] = weight[h];
+		String result[] = new String[BitBoard.N];
+		for(int i = 0 ; i < BitBoard.N ; i ++)
+		{
+			StringBuilder row = new StringBuilder();
+			for(int j = 0 ; j < BitBoard.N ; j ++)
+			{
+				if(BitBoard.HOLE[i][j] >= 0)
+					row.append(turned[BitBoard.HOLE[i][j]]).append(' ');
+			}
+			result[i] = row.toString();
+		}
+		return result;
+	}
+
+	//Builds the set named by -Dpeg.pagodas, a comma separated list of classic and
+	//arm (default both). none turns pagoda pruning off
+	static PagodaSet fromProperties()
+	{
+		String names[] = System.getProperty("peg.pagodas", "classic,arm").split(",");
+		List<String[]> tables = new ArrayList<String[]>();
+		for(int n = 0 ; n < names.length ; n ++)
+		{
+			String name = names[n].trim();
+			if(name.equals("classic"))
+			{
+				tables.add(CLASSIC);
+			}
+			else if(name.equals("arm"))
+			{
+				String rows[] = ARM;
+				for(int r = 0 ; r < 4 ; r ++)
+				{
+					tables.add(rows);
+					rows = rotate(rows);
+				}
+			}
+			else if(!name.equals("none") && name.length() > 0)
+			{
+				throw new IllegalArgumentException("Unknown pagoda set " + name);
+			}
+		}
+		if(tables.isEmpty())
+			return null;
+		return new PagodaSet(tables.toArray(new String[tables.size()][]));
+	}
+
+	//Computes the totals of a position. Returns false if the position is cut
+	public boolean reset(long pegs)
+	{
+		boolean feasible = true;
+		for(int p = 0 ; p < count ; p ++)
+		{
+			int sum = 0;
+			for(int h = 0 ; h < BitBoard.HOLES ; h ++)
+			{
+				if((pegs & (1L << h)) != 0)
+					sum += weight[p][h];
+			}
+			value[p] = sum;
+			feasible &= sum >= target[p];
+		}
+		return feasible;
+	}
+
+	//Updates the totals for move m. Returns false if the new position is cut
+	public boolean make(int m)
+	{
+		boolean feasible = true;
+		for(int p = 0 ; p < count ; p ++)
+		{
+			value[p] += delta[p][m];
+			feasible &= value[p] >= target[p];
+		}
+		return feasible;
+	}
+
+	//Takes move m back
+	public void unmake(int m)
+	{
+		for(int p = 0 ; p < count ; p ++)
+			value[p] -= delta[p][m];
+	}
+}
@@ -0,0 +1,234 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * A fork-join version of the plain DFS. The top splitDepth levels of the search
+ * tree are turned into tasks, each carrying its own copy of the board and of the
+ * moves leading to it, and the pool's work stealing spreads them over the cores.
+ * Below that every task searches sequentially. All tasks share one dead-position
+ * cache, and the first one to find a winning line sets a flag that makes every
+ * other task return at its next node.
+ * SolverBenchmark times it with 1, 2 and 4 threads and one per core. On a
+ * single core more threads only add work, as tasks search positions that
+ * another task is about to prove dead, so a speedup needs real cores.
+ */
+public class ParallelSolver {
+	//The board searched, its holes, jumps and symmetries
+	private BoardTopology topology;
+	//The start position, one bit per hole
+	private long start;
+	private int numPegs;
+	//Number of levels split into tasks
+	private int splitDepth;
+	private ForkJoinPool pool;
+	//positions proven dead by any task
+	private ConcurrentLongHashSet deadCache;
+	//Set as soon as one task finds a winning line
+	private volatile boolean done;
+	//The winning line as move ids, first move first
+	private volatile int solution[];
+	private AtomicLong expandedNodes = new AtomicLong();
+
+	//A search of the English board
+	public ParallelSolver(String boardState[], int threads, int splitDepth)
+	{
+		this(BoardTopology.ENGLISH, boardState, threads, splitDepth);
+	}
+
+	//A search of any board
+	public ParallelSolver(BoardTopology topology, String boardState[], int threads, int splitDepth)
+	{
+		this.topology = topology;
+		char board[][] = new char[topology.N][topology.N];
+		for(int i = 0 ; i < topology.N ; i ++)
+			for(int j = 0 ; j < topology.N ; j ++)
+			{
+				board[i][j] = j < boardState[i].length() ? boardState[i].charAt(j) : '-';
+				if(board[i][j] == 'X' && !topology.isHole(i, j))
+					throw new IllegalArgumentException("Peg at (" + i + "," + j + ") is off the " + topology.name + " board");
+			}
+		start = topology.fromBoard(board);
+		numPegs = Long.bitCount(start);
+		this.splitDepth = splitDepth;
+		pool = new ForkJoinPool(threads);
+		int cacheMB = Integer.getInteger("peg.cacheMB", 64);
+		if(cacheMB > 0)
+			deadCache = new ConcurrentLongHashSet(cacheMB * 1024L * 1024L);
+	}
+
+	//One subtree of the search
+	class SearchTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		private long pegs;
+		private int nPegs;
+		//moves leading here, move ids by depth
+		private int path[];
+		//nodes expanded by this task
+		private long nodes;
+
+		SearchTask(long pegs, int nPegs, int path[])
+		{
+			this.pegs = pegs;
+			this.nPegs = nPegs;
+			this.path = path;
+		}
+
+		protected void compute()
+		{
+			int depth = numPegs - nPegs;
+			if(depth >= splitDepth || nPegs == 1)
+			{
+				doDfs(nPegs);
+				expandedNodes.addAndGet(nodes);
+				return;
+			}
+			if(done)
+				return;
+			long key = canonical(pegs);
+			if(deadCache != null && deadCache.contains(key))
+				return;
+			expandedNodes.incrementAndGet();
+			//One task per move. Moves leading to rotations or reflections of a
+			//sibling's position have the same outcome and are left out
+			List<SearchTask> tasks = new ArrayList<SearchTask>();
+			long seen[] = new long[topology.moves];
+			int nSeen = 0;
+			for(int m = 0 ; m < topology.moves ; m ++)
+			{
+				if(!topology.isLegal(pegs, m))
+					continue;
+				long child = pegs ^ topology.moveMask[m];
+				long childKey = canonical(child);
+				boolean duplicate = false;
+				for(int s = 0 ; s < nSeen ; s ++)
+					duplicate |= seen[s] == childKey;
+				if(duplicate)
+					continue;
+				seen[nSeen++] = childKey;
+				int childPath[] = path.clone();
+				childPath[depth] = m;
+				tasks.add(new SearchTask(child, nPegs - 1, childPath));
+			}
+			invokeAll(tasks);
+			if(!done && deadCache != null)
+				deadCache.add(key);
+		}
+
+		//The sequential DFS below the split levels, on this task's own board
+		private void doDfs(int nPegs)
+		{
+			if(done)
+				return;
+			if(nPegs > 1 && deadCache != null && deadCache.contains(canonical(pegs)))
+				return;
+			nodes++;
+			if(nPegs == 1)
+			{
+				if(topology.isGoal(pegs))
+				{
+					solution = Arrays.copyOf(path, numPegs - 1);
+					done = true;
+				}
+				return;
+			}
+			int depth = numPegs - nPegs;
+			int firstMove[] = topology.firstMove;
+			long moveMask[] = topology.moveMask;
+			long rest = pegs;
+			while(rest != 0)
+			{
+				int h = Long.numberOfTrailingZeros(rest);
+				rest &= rest - 1;
+				for(int m = firstMove[h] ; m < firstMove[h+1] ; m ++)
+				{
+					if(topology.isLegal(pegs, m))
+					{
+						pegs ^= moveMask[m];
+						path[depth] = m;
+						doDfs(nPegs-1);
+						pegs ^= moveMask[m];
+					}
+				}
+			}
+			if(!done && deadCache != null)
+				deadCache.add(canonical(pegs));
+		}
+	}
+
+	//Runs the search, returning true if a winning line was found
+	public boolean solveGame()
+	{
+		done = false;
+		solution = null;
+		//Positions outside the class of the target finish cannot be won
+		if(!topology.canReachTarget(start))
+			return false;
+		pool.invoke(new SearchTask(start, numPegs, new int[numPegs]));
+		return done;
+	}
+
+	//Key of the dead-position cache, as in DFSLauncher
+	private long canonical(long pegs)
+	{
+		return topology == BoardTopology.ENGLISH ? Symmetry.canonical(pegs) : topology.canonical(pegs);
+	}
+
+	//Displays the winning path the way the launchers do, last move first
+	public void displaySolution()
+	{
+		if(!done)
+		{
+			System.out.print("No Winning path on this configuration");
+			return;
+		}
+		int line[] = solution;
+		for(int d = line.length - 1 ; d >= 0 ; d --)
+			System.out.print("( "+topology.moveFrom[line[d]]+","+topology.moveTo[line[d]]+" )  ");
+	}
+
+	public long getExpandedNodes()
+	{
+		return expandedNodes.get();
+	}
+
+	public void shutdown()
+	{
+		pool.shutdown();
+	}
+
+	public static void main(String[] args) throws Exception {
+		//The board named by -Dpeg.board, english if it is not set
+		BoardTopology topology = BatchSolver.topology();
+		int N = topology.N;
+		if(args.length < 1 || args.length > 3)  {
+			System.err.println("usage: ParallelSolver <filePath> [threads] [splitDepth]");
+			return;
+		}
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int splitDepth = args.length > 2 ? Integer.parseInt(args[2]) : 6;
+		String input[] = new String[N];
+		BoardReader in = new BoardReader(args[0], N);
+		if(!in.next(input))
+		{
+			System.err.println("No board in "+args[0]);
+			return;
+		}
+		in.close();
+		for(int i = 0 ; i < N ; i ++)
+			System.out.println(input[i]);
+		ParallelSolver solver = new ParallelSolver(topology, input, threads, splitDepth);
+		long startTime = System.currentTimeMillis();
+		solver.solveGame();
+		long endTime = System.currentTimeMillis();
+		solver.displaySolution();
+		solver.shutdown();
+		System.out.println("\n***STATS***");
+		System.out.println(endTime - startTime+" milliSeconds");
+		System.out.println("Threads: "+threads+"\nNodes visited: "+solver.getExpandedNodes());
+	}
+}
@@ -0,0 +1,50 @@
+import java.util.Stack;
+
+/*
+ * What the batch tools need from a solver. reset loads a new board into an
+ * existing solver so that one instance, and its warm dead-position cache,
+ * can be reused for any number of boards.
+ */
+interface PegSolver {
+	//Loads a new start position, keeping every allocated structure
+	void reset(String boardState[]);
+
+	void solveGame() throws Exception;
+
+	//Searches until the board is decided, a System.currentTimeMillis deadline
+	//passes or maxNodes nodes are expanded. A limit of 0 is no limit
+	SolveResult solveGame(long deadline, long maxNodes) throws Exception;
+
+	//Outcome of the last solveGame
+	SolveResult getResult();
+
+	//Whether the last solveGame found a winning line
+	boolean isSolved();
+
+	//The winning line, first move at the bottom of the stack
+	Stack<pair> getMoves();
+
+	//Nodes expanded by the last solveGame
+	long getExpandedNodes();
+
+	//Counters of the last solveGame
+	SolverMetrics getMetrics();
+
+	//The board searched, which gives meaning to positions and move ids
+	BoardTopology getTopology();
+
+	//Depth of the node the search is at, the position there and the moves leading
+	//to it. These are read while solveGame runs on another thread, without
+	//locking, so they may be a few nodes apart
+	int getDepth();
+
+	long getPosition();
+
+	//Copies the moves leading to the current node into line, as move ids. Returns
+	//how many were copied
+	int getLine(int line[]);
+
+	//Asks a running solveGame, possibly on another thread, to stop early. It ends
+	//with BUDGET_EXCEEDED
+	void cancel();
+}
@@ -0,0 +1,25 @@
+/*
+ * The 16 position classes of the board. Label every hole by (i+j) mod 3 and by
+ * (i-j) mod 3. A jump takes one peg off each of three consecutive holes of a
+ * line and puts one on the third, so it flips the peg-count parity of all three
+ * labels of either kind at once. The differences between those parities never
+ * change, giving 2 + 2 invariant bits. A position whose class differs from the
+ * class of a single peg in the centre can never be solved. The labels hold on
+ * any board that jumps along rows and columns only, so BoardTopology keeps them.
+ */
+class PositionClass {
+	//Class of the goal, one peg in the centre
+	static final int CENTRE_CLASS = of(BitBoard.CENTRE_MASK);
+
+	//Class of a position, 0 to 15
+	static int of(long pegs)
+	{
+		return BitBoard.TOPOLOGY.positionClass(pegs);
+	}
+
+	//Whether the position is in the same class as the centre finish
+	static boolean canReachCentre(long pegs)
+	{
+		return of(pegs) == CENTRE_CLASS;
+	}
+}
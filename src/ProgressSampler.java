@@ -0,0 +1,153 @@
+import java.io.PrintStream;
+
+/*
+ * Reports on a running search from a background thread, for solves too slow to
+ * trace node by node with verbose. Every period it reads the solver's node count,
+ * depth and current line, which the search thread writes as plain fields, and
+ * prints one line with the nodes per second since the last report. The search
+ * itself does no extra work beyond those few stores, so its speed is unchanged.
+ *
+ * With a snapshot interval, the board at the current node is also printed each
+ * time the node count has passed another multiple of it since the last
+ * snapshot. The check is made at report time, so snapshots land on the first
+ * report after each multiple.
+ */
+class ProgressSampler extends Thread {
+	private PegSolver solver;
+	private long periodMillis;
+	//Nodes between board snapshots, 0 for none
+	private long snapshotNodes;
+	private PrintStream out;
+	private volatile boolean finished;
+
+	public ProgressSampler(PegSolver solver, long periodMillis, long snapshotNodes, PrintStream out)
+	{
+		super("peg-progress");
+		setDaemon(true);
+		this.solver = solver;
+		this.periodMillis = periodMillis;
+		this.snapshotNodes = snapshotNodes;
+		this.out = out;
+	}
+
+	//Starts a sampler as configured by -Dpeg.progressMillis (off unless set) and
+	//-Dpeg.snapshotMillionNodes, reporting to stderr. Returns null if it is off
+	static ProgressSampler fromProperties(PegSolver solver)
+	{
+		long periodMillis = Long.getLong("peg.progressMillis", 0);
+		if(periodMillis <= 0)
+			return null;
+		long snapshotNodes = Long.getLong("peg.snapshotMillionNodes", 0) * 1000000L;
+		ProgressSampler sampler = new ProgressSampler(solver, periodMillis, snapshotNodes, System.err);
+		sampler.start();
+		return sampler;
+	}
+
+	public void run()
+	{
+		long startTime = System.nanoTime();
+		long lastTime = startTime;
+		long lastNodes = 0;
+		long nextSnapshot = snapshotNodes;
+		BoardTopology topology = solver.getTopology();
+		int line[] = new int[topology.holes];
+		char board[][] = new char[topology.N][topology.N];
+		while(!finished)
+		{
+			try
+			{
+				Thread.sleep(periodMillis);
+			}
+			catch(InterruptedException e)
+			{
+				break;
+			}
+			long now = System.nanoTime();
+			long nodes = solver.getExpandedNodes();
+			int depth = solver.getDepth();
+			int n = solver.getLine(line);
+			StringBuilder report = new StringBuilder();
+			report.append(String.format("[progress] %.1f s  nodes %d  %.0f nodes/s  depth %d  line",
+				(now - startTime) / 1e9, nodes, (nodes - lastNodes) * 1e9 / (now - lastTime), depth));
+			for(int d = 0 ; d < n ; d ++)
+				report.append(' ').append(topology.moveFrom[line[d]]).append('-').append(topology.moveTo[line[d]]);
+			out.println(report);
+			if(snapshotNodes > 0 && nodes >= nextSnapshot)
+			{
+				snapshot(topology, solver.getPosition(), board);
+				nextSnapshot = (nodes / snapshotNodes + 1) * snapshotNodes;
+			}
+			lastTime = now;
+			lastNodes = nodes;
+		}
+	}
+
+	//Prints a position the way it is read in, one row per line
+	private void snapshot(BoardTopology topology, long pegs, char board[][])
+	{
+		for(int i = 0 ; i < topology.N ; i ++)
+			for(int j = 0 ; j < topology.N ; j ++)
+				board[i][j] = '-';
+		topology.toBoard(pegs, board);
+		for(int i = 0 ; i < topology.N ; i ++)
+			out.println(new String(board[i]));
+	}
+
+	//Stops the reports and waits for the thread to end
+	public void finish() throws InterruptedException
+	{
+		finished = true;
+		interrupt();
+		join();
+	}
+
+	//Check that the sampler follows the solver's board: samples a DFSLauncher on
+	//every BoardTopology every millisecond, with a snapshot at each report, and
+	//fails if the sampler thread throws
+	public static void main(String[] args) throws Exception {
+		BoardTopology topologies[] = {BoardTopology.ENGLISH, BoardTopology.EUROPEAN, BoardTopology.TRIANGULAR};
+		final boolean failed[] = new boolean[1];
+		for(BoardTopology topology : topologies)
+		{
+			//A position that reaches the target: undo jumps from a single peg on it,
+			//the highest move ids first so that every id range shows up in the line
+			long pegs = 1L << (topology.target == BoardTopology.ANY_HOLE ? 0 : topology.target);
+			for(int k = 0 ; k < topology.holes * 2 / 3 ; k ++)
+				for(int m = topology.moves - 1 ; m >= 0 ; m --)
+					if((pegs & topology.moveMask[m]) == topology.moveEmpty[m])
+					{
+						pegs ^= topology.moveMask[m];
+						break;
+					}
+			char board[][] = new char[topology.N][topology.N];
+			for(int i = 0 ; i < topology.N ; i ++)
+				for(int j = 0 ; j < topology.N ; j ++)
+					board[i][j] = '-';
+			topology.toBoard(pegs, board);
+			String input[] = new String[topology.N];
+			for(int i = 0 ; i < topology.N ; i ++)
+				input[i] = new String(board[i]);
+
+			DFSLauncher solver = new DFSLauncher(topology, input);
+			ProgressSampler sampler = new ProgressSampler(solver, 1, 1, System.out);
+			sampler.setUncaughtExceptionHandler(new UncaughtExceptionHandler() {
+				public void uncaughtException(Thread t, Throwable e)
+				{
+					e.printStackTrace();
+					failed[0] = true;
+				}
+			});
+			System.out.println(topology.name);
+			sampler.start();
+			solver.solveGame(System.currentTimeMillis() + 200, 0);
+			//Small boards are solved before the first report
+			Thread.sleep(5);
+			sampler.finish();
+		}
+		if(failed[0])
+		{
+			System.err.println("The sampler failed");
+			System.exit(1);
+		}
+	}
+}
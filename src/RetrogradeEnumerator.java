@@ -0,0 +1,178 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Enumerates every position from which the single peg in the centre can be
+ * reached, working backward from the goal one peg count at a time. A position
+ * with k pegs is winning exactly when one of its jumps lands on a winning
+ * position with k - 1 pegs, so level k is every position a jump taken back
+ * (pegs appear on the from and over holes, the peg on the to hole goes) turns
+ * a position of level k - 1 into.
+ *
+ * Positions are kept as canonical keys, which cuts the sets by up to 8, since the
+ * images of a winning position are winning too. Each level is a file of sorted,
+ * distinct keys as big-endian longs, level-KK.bin for KK pegs. Only the level
+ * being read is streamed, a buffer of new keys is sorted and spilled to a run
+ * file whenever it fills up, and the runs are merged into the next level, so
+ * memory is bounded by the buffer whatever the size of the level.
+ */
+class RetrogradeEnumerator {
+	//Bits of a merge heap entry below the key, holding the run it came from
+	private static final int RUN_BITS = 64 - BitBoard.HOLES - 1;
+	private static final int IO_BUFFER = 1 << 16;
+
+	private File dir;
+	//New keys waiting to be sorted and spilled
+	private long buffer[];
+	private int fill;
+	private List<File> runs = new ArrayList<File>();
+	//Positions found at every peg count
+	long count[] = new long[BitBoard.HOLES + 1];
+
+	//Writes the levels into dir, using a buffer of bufferBytes for new keys
+	public RetrogradeEnumerator(File dir, long bufferBytes)
+	{
+		this.dir = dir;
+		buffer = new long[(int) Math.min(Math.max(bufferBytes / 8, 1024), Integer.MAX_VALUE - 8)];
+	}
+
+	static File levelFile(File dir, int pegs)
+	{
+		return new File(dir, "level-" + (pegs < 10 ? "0" : "") + pegs + ".bin");
+	}
+
+	//Builds the levels from 1 up to maxPegs, or until a level is empty
+	public void enumerate(int maxPegs) throws IOException
+	{
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+			new FileOutputStream(levelFile(dir, 1))));
+		out.writeLong(BitBoard.CENTRE_MASK);
+		out.close();
+		count[1] = 1;
+		for(int pegs = 2 ; pegs <= maxPegs && count[pegs-1] > 0 ; pegs ++)
+			count[pegs] = buildLevel(pegs);
+	}
+
+	//Takes every jump of level pegs - 1 back and writes the keys reached as level pegs
+	private long buildLevel(int pegs) throws IOException
+	{
+		File previous = levelFile(dir, pegs - 1);
+		long n = previous.length() / 8;
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+			new FileInputStream(previous), IO_BUFFER));
+		for(long i = 0 ; i < n ; i ++)
+		{
+			long key = in.readLong();
+			for(int m = 0 ; m < BitBoard.MOVES ; m ++)
+			{
+				//The jump m could have been the last one: a peg on its to hole only
+				if((key & BitBoard.MOVE_MASK[m]) == BitBoard.MOVE_EMPTY[m])
+				{
+					if(fill == buffer.length)
+						spill();
+					buffer[fill++] = Symmetry.canonical(key ^ BitBoard.MOVE_MASK[m]);
+				}
+			}
+		}
+		in.close();
+		spill();
+		return merge(levelFile(dir, pegs));
+	}
+
+	//Sorts the buffer and writes its distinct keys as a run
+	private void spill() throws IOException
+	{
+		if(fill == 0)
+			return;
+		Arrays.sort(buffer, 0, fill);
+		File run = new File(dir, "run-" + runs.size() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+			new FileOutputStream(run), IO_BUFFER));
+		for(int i = 0 ; i < fill ; i ++)
+		{
+			if(i == 0 || buffer[i] != buffer[i-1])
+				out.writeLong(buffer[i]);
+		}
+		out.close();
+		runs.add(run);
+		fill = 0;
+	}
+
+	//Merges the runs into one sorted file of distinct keys and deletes them.
+	//Returns the number of keys written
+	private long merge(File level) throws IOException
+	{
+		if(runs.size() >= 1 << RUN_BITS)
+			throw new IOException("Too many runs, raise the buffer size");
+		DataInputStream in[] = new DataInputStream[runs.size()];
+		long left[] = new long[runs.size()];
+		LongMinHeap heap = new LongMinHeap(runs.size());
+		for(int r = 0 ; r < runs.size() ; r ++)
+		{
+			in[r] = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(runs.get(r)), IO_BUFFER));
+			left[r] = runs.get(r).length() / 8;
+			if(left[r]-- > 0)
+				heap.push(in[r].readLong() << RUN_BITS | r);
+		}
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+			new FileOutputStream(level), IO_BUFFER));
+		long written = 0;
+		long last = -1;
+		while(heap.size() > 0)
+		{
+			long top = heap.pop();
+			long key = top >>> RUN_BITS;
+			int r = (int)(top & ((1L << RUN_BITS) - 1));
+			if(key != last)
+			{
+				out.writeLong(key);
+				written++;
+				last = key;
+			}
+			if(left[r]-- > 0)
+				heap.push(in[r].readLong() << RUN_BITS | r);
+		}
+		out.close();
+		for(int r = 0 ; r < runs.size() ; r ++)
+		{
+			in[r].close();
+			runs.get(r).delete();
+		}
+		runs.clear();
+		return written;
+	}
+
+	public static void main(String[] args) throws Exception {
+		if(args.length < 1 || args.length > 2)  {
+			System.err.println("usage: RetrogradeEnumerator <outputDir> [maxPegs]");
+			return;
+		}
+		File dir = new File(args[0]);
+		dir.mkdirs();
+		int maxPegs = args.length > 1 ? Integer.parseInt(args[1]) : BitBoard.HOLES;
+		//Memory for new keys between spills, -Dpeg.runMB (default 256)
+		long bufferBytes = Integer.getInteger("peg.runMB", 256) * 1024L * 1024L;
+		RetrogradeEnumerator enumerator = new RetrogradeEnumerator(dir, bufferBytes);
+		long startTime = System.currentTimeMillis();
+		enumerator.enumerate(maxPegs);
+		long endTime = System.currentTimeMillis();
+		long total = 0;
+		for(int pegs = 1 ; pegs <= maxPegs && pegs <= BitBoard.HOLES ; pegs ++)
+		{
+			System.out.println(pegs+" pegs: "+enumerator.count[pegs]+" positions up to symmetry");
+			total += enumerator.count[pegs];
+		}
+		System.out.println("Total: "+total+" positions up to symmetry");
+		System.out.println(endTime - startTime+" milliSeconds");
+	}
+}
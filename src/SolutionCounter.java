@@ -0,0 +1,263 @@
+import java.math.BigInteger;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Counts every winning line of a board, not just the first one. The number of
+ * lines from a position is the sum of the numbers from the positions its jumps
+ * lead to, and is the same for all 8 images of the position, so it is kept per
+ * canonical key and every later visit of the position adds it in without a
+ * search. Positions with no line at all go to a dead-position cache instead,
+ * which keeps the map down to the winning ones. Pagoda functions cut branches
+ * as in DFSLauncher.
+ *
+ * Counts are unsigned 128-bit, two longs added with a carry: the standard board
+ * alone has about 4 * 10^16 lines. As in ParallelSolver the top splitDepth
+ * levels are fork-join tasks over one shared map and cache. Two tasks may count
+ * the same position at once, which costs time but not accuracy.
+ */
+class SolutionCounter {
+	//The start position, one bit per hole
+	private long start;
+	private int numPegs;
+	//Number of levels split into tasks
+	private int splitDepth;
+	private ForkJoinPool pool;
+	//Line counts of winning positions, by canonical key
+	private LongCountMap counts;
+	//positions proven to have no line
+	private ConcurrentLongHashSet deadCache;
+	private AtomicLong expandedNodes = new AtomicLong();
+	//One pagoda set per worker thread. A task resets it before use, and a task
+	//that forks no longer needs it, so tasks run on one thread never share it
+	private ThreadLocal<PagodaSet> pagodaSets = new ThreadLocal<PagodaSet>() {
+		protected PagodaSet initialValue()
+		{
+			return PagodaSet.fromProperties();
+		}
+	};
+
+	public SolutionCounter(String boardState[], int threads, int splitDepth)
+	{
+		char board[][] = new char[BitBoard.N][BitBoard.N];
+		for(int i = 0 ; i < BitBoard.N ; i ++)
+			for(int j = 0 ; j < BitBoard.N ; j ++)
+				board[i][j] = boardState[i].charAt(j);
+		start = BitBoard.fromBoard(board);
+		numPegs = Long.bitCount(start);
+		this.splitDepth = splitDepth;
+		pool = new ForkJoinPool(threads);
+		counts = new LongCountMap(1 << 20);
+		int cacheMB = Integer.getInteger("peg.cacheMB", 64);
+		if(cacheMB > 0)
+			deadCache = new ConcurrentLongHashSet(cacheMB * 1024L * 1024L);
+	}
+
+	//The count of one position, left in low and high when the task is done
+	class CountTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		private long pegs;
+		private int nPegs;
+		long low;
+		long high;
+		//Set by count, the result of the last call
+		private long countLow;
+		private long countHigh;
+		private long found[] = new long[2];
+		private PagodaSet pagodas;
+		//nodes expanded by this task
+		private long nodes;
+
+		CountTask(long pegs, int nPegs)
+		{
+			this.pegs = pegs;
+			this.nPegs = nPegs;
+		}
+
+		protected void compute()
+		{
+			pagodas = pagodaSets.get();
+			if(pagodas != null && !pagodas.reset(pegs))
+				return;
+			if(numPegs - nPegs >= splitDepth || nPegs == 1)
+			{
+				count(nPegs);
+				low = countLow;
+				high = countHigh;
+				expandedNodes.addAndGet(nodes);
+				return;
+			}
+			long key = Symmetry.canonical(pegs);
+			if(counts.get(key, found))
+			{
+				low = found[0];
+				high = found[1];
+				return;
+			}
+			if(deadCache != null && deadCache.contains(key))
+				return;
+			expandedNodes.incrementAndGet();
+			//One task per distinct child, counted as many times as jumps lead to
+			//one of its images
+			CountTask tasks[] = new CountTask[BitBoard.MOVES];
+			long keys[] = new long[BitBoard.MOVES];
+			int times[] = new int[BitBoard.MOVES];
+			int nTasks = 0;
+			for(int m = 0 ; m < BitBoard.MOVES ; m ++)
+			{
+				if(!BitBoard.isLegal(pegs, m))
+					continue;
+				long child = pegs ^ BitBoard.MOVE_MASK[m];
+				long childKey = Symmetry.canonical(child);
+				int t = 0;
+				while(t < nTasks && keys[t] != childKey)
+					t++;
+				if(t == nTasks)
+				{
+					keys[nTasks] = childKey;
+					tasks[nTasks++] = new CountTask(child, nPegs - 1);
+				}
+				times[t]++;
+			}
+			for(int t = 0 ; t < nTasks ; t ++)
+				tasks[t].fork();
+			for(int t = nTasks - 1 ; t >= 0 ; t --)
+			{
+				tasks[t].join();
+				for(int k = 0 ; k < times[t] ; k ++)
+					add(tasks[t].low, tasks[t].high);
+			}
+			record(key, low, high);
+		}
+
+		//Adds an unsigned 128-bit count to low and high
+		private void add(long lo, long hi)
+		{
+			long sum = low + lo;
+			high += hi + (Long.compareUnsigned(sum, low) < 0 ? 1 : 0);
+			low = sum;
+		}
+
+		//Counts the lines from pegs into countLow and countHigh
+		private void count(int nPegs)
+		{
+			countLow = 0;
+			countHigh = 0;
+			if(nPegs == 1)
+			{
+				if((pegs & BitBoard.CENTRE_MASK) != 0)
+					countLow = 1;
+				return;
+			}
+			long key = Symmetry.canonical(pegs);
+			if(counts.get(key, found))
+			{
+				countLow = found[0];
+				countHigh = found[1];
+				return;
+			}
+			if(deadCache != null && deadCache.contains(key))
+				return;
+			nodes++;
+			long lo = 0;
+			long hi = 0;
+			long rest = pegs;
+			while(rest != 0)
+			{
+				int h = Long.numberOfTrailingZeros(rest);
+				rest &= rest - 1;
+				for(int m = BitBoard.FIRST_MOVE[h] ; m < BitBoard.FIRST_MOVE[h+1] ; m ++)
+				{
+					if(!BitBoard.isLegal(pegs, m))
+						continue;
+					//a pagoda function shows the jump cannot win
+					if(pagodas != null && !pagodas.make(m))
+					{
+						pagodas.unmake(m);
+						continue;
+					}
+					pegs ^= BitBoard.MOVE_MASK[m];
+					count(nPegs-1);
+					pegs ^= BitBoard.MOVE_MASK[m];
+					if(pagodas != null)
+						pagodas.unmake(m);
+					long sum = lo + countLow;
+					hi += countHigh + (Long.compareUnsigned(sum, lo) < 0 ? 1 : 0);
+					lo = sum;
+				}
+			}
+			record(key, lo, hi);
+			countLow = lo;
+			countHigh = hi;
+		}
+	}
+
+	//Keeps the count of a position, in the cache if it is 0
+	private void record(long key, long low, long high)
+	{
+		if(low != 0 || high != 0)
+			counts.put(key, low, high);
+		else if(deadCache != null)
+			deadCache.add(key);
+	}
+
+	//Counts the winning lines of the board
+	public BigInteger count()
+	{
+		//Positions outside the class of the centre finish cannot be won
+		if(!PositionClass.canReachCentre(start))
+			return BigInteger.ZERO;
+		CountTask root = new CountTask(start, numPegs);
+		pool.invoke(root);
+		return new BigInteger(Long.toUnsignedString(root.high)).shiftLeft(64)
+			.add(new BigInteger(Long.toUnsignedString(root.low)));
+	}
+
+	public long getExpandedNodes()
+	{
+		return expandedNodes.get();
+	}
+
+	//Number of winning positions whose count is kept
+	public long getWinningPositions()
+	{
+		return counts.size();
+	}
+
+	public void shutdown()
+	{
+		pool.shutdown();
+	}
+
+	public static void main(String[] args) throws Exception {
+		int N = 7;
+		if(args.length < 1 || args.length > 3)  {
+			System.err.println("usage: SolutionCounter <filePath> [threads] [splitDepth]");
+			return;
+		}
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int splitDepth = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+		String input[] = new String[N];
+		BoardReader in = new BoardReader(args[0], N);
+		if(!in.next(input))
+		{
+			System.err.println("No board in "+args[0]);
+			return;
+		}
+		in.close();
+		for(int i = 0 ; i < N ; i ++)
+			System.out.println(input[i]);
+		SolutionCounter counter = new SolutionCounter(input, threads, splitDepth);
+		long startTime = System.currentTimeMillis();
+		BigInteger lines = counter.count();
+		long endTime = System.currentTimeMillis();
+		counter.shutdown();
+		System.out.println("Winning lines: "+lines);
+		System.out.println("\n***STATS***");
+		System.out.println(endTime - startTime+" milliSeconds");
+		System.out.println("Threads: "+threads+"\nNodes visited: "+counter.getExpandedNodes()
+			+"\nWinning positions kept: "+counter.getWinningPositions());
+	}
+}
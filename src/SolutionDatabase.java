@@ -0,0 +1,274 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Stack;
+
+/*
+ * Decided positions kept on disk from one run to the next, so that a board asked
+ * for again is answered without a search. Positions are stored under their
+ * canonical key, with the winning line as move ids in the frame of the canonical
+ * board, or marked as having no winning line. Any rotation or reflection of a
+ * stored board is found too.
+ *
+ * Every result is appended to <path>.log, which is never rewritten. <path>.idx is
+ * an open-addressing hash table of fixed size slots, each holding a copy of one
+ * record, and is mapped into memory, so a lookup is a hash and a few probes with
+ * no read call. The index remembers how much of the log it covers. When it does
+ * not cover all of it (it is missing, or a run stopped between the two writes),
+ * or when it gets 3/4 full, it is rebuilt from the log. The new index is written
+ * to <path>.idx.tmp and renamed over the old one, so the old mapping is never
+ * truncated under a reader and a crash leaves one whole index or the other.
+ */
+class SolutionDatabase {
+	//Length of a record for a position with no winning line
+	private static final int UNSOLVABLE = 0xFF;
+	//Longest winning line, one move per peg but the last
+	private static final int MAX_MOVES = BitBoard.HOLES - 1;
+	//Slot: key, length, moves, padded to 8 bytes
+	private static final int SLOT = (8 + 1 + MAX_MOVES + 7) & ~7;
+	//Header: log bytes covered (long), slots (int), records (int)
+	private static final int HEADER = 16;
+	private static final int MIN_SLOTS = 1 << 12;
+
+	//The database named by -Dpeg.db, shared by every solver in the JVM
+	private static SolutionDatabase shared;
+	private static boolean opened;
+
+	private String logPath;
+	private String indexPath;
+	private RandomAccessFile log;
+	private RandomAccessFile indexFile;
+	private MappedByteBuffer index;
+	private int slots;
+	private int mask;
+	private int shift;
+	private int size;
+	//lookup statistics
+	long hits;
+	long misses;
+
+	//Opens the database at path, creating it if needed
+	public SolutionDatabase(String path) throws IOException
+	{
+		logPath = path + ".log";
+		log = new RandomAccessFile(logPath, "rw");
+		indexPath = path + ".idx";
+		indexFile = new RandomAccessFile(indexPath, "rw");
+		if(!openIndex())
+			rebuild(MIN_SLOTS);
+	}
+
+	//The database at the path given by -Dpeg.db, or null if there is none
+	static synchronized SolutionDatabase fromProperties()
+	{
+		if(!opened)
+		{
+			opened = true;
+			String path = System.getProperty("peg.db");
+			if(path != null)
+			{
+				try
+				{
+					shared = new SolutionDatabase(path);
+				}
+				catch(IOException e)
+				{
+					throw new IllegalStateException("Cannot open solution database " + path, e);
+				}
+			}
+		}
+		return shared;
+	}
+
+	//Maps the index file as it is. Returns false if it does not cover the log
+	private boolean openIndex() throws IOException
+	{
+		if(indexFile.length() < HEADER)
+			return false;
+		MappedByteBuffer header = indexFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+		int n = header.getInt(8);
+		if(n < MIN_SLOTS || Integer.bitCount(n) != 1 || indexFile.length() != HEADER + (long) n * SLOT
+			|| header.getLong(0) != log.length())
+			return false;
+		map(indexFile, n);
+		size = index.getInt(12);
+		return true;
+	}
+
+	private void map(RandomAccessFile file, int n) throws IOException
+	{
+		slots = n;
+		mask = n - 1;
+		shift = 64 - Integer.numberOfTrailingZeros(n);
+		index = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) n * SLOT);
+	}
+
+	//Builds a new index of at least n slots from the records of the log. A record
+	//cut short by a crash is dropped from the log
+	private void rebuild(int n) throws IOException
+	{
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(logPath), 1 << 16));
+		byte moves[] = new byte[MAX_MOVES];
+		long good = 0;
+		int records = 0;
+		try
+		{
+			while(true)
+			{
+				in.readLong();
+				int length = in.readUnsignedByte();
+				if(length > MAX_MOVES && length != UNSOLVABLE)
+					break;
+				in.readFully(moves, 0, length == UNSOLVABLE ? 0 : length);
+				good += recordLength(length);
+				records++;
+			}
+		}
+		catch(EOFException e)
+		{
+		}
+		in.close();
+		log.setLength(good);
+		while(records * 4L > n * 3L)
+			n *= 2;
+
+		//The old index stays mapped, and whole, until the new one replaces it
+		String tmpPath = indexPath + ".tmp";
+		Files.deleteIfExists(Paths.get(tmpPath));
+		RandomAccessFile tmp = new RandomAccessFile(tmpPath, "rw");
+		tmp.setLength(HEADER + (long) n * SLOT);
+		map(tmp, n);
+		size = 0;
+		index.putInt(8, n);
+		in = new DataInputStream(new BufferedInputStream(new FileInputStream(logPath), 1 << 16));
+		for(int r = 0 ; r < records ; r ++)
+		{
+			long key = in.readLong();
+			int length = in.readUnsignedByte();
+			in.readFully(moves, 0, length == UNSOLVABLE ? 0 : length);
+			put(key, length, moves, 0);
+		}
+		in.close();
+		index.putLong(0, good);
+		index.force();
+		Files.move(Paths.get(tmpPath), Paths.get(indexPath), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		indexFile.close();
+		indexFile = tmp;
+	}
+
+	private static int recordLength(int length)
+	{
+		return 8 + 1 + (length == UNSOLVABLE ? 0 : length);
+	}
+
+	private int home(long key)
+	{
+		return (int)((key * 0x9E3779B97F4A7C15L) >>> shift);
+	}
+
+	//Offset of the slot holding key, or of the empty slot where it would go
+	private int find(long key)
+	{
+		int slot = home(key);
+		while(true)
+		{
+			int base = HEADER + slot * SLOT;
+			long k = index.getLong(base);
+			if(k == key || k == 0)
+				return base;
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	//Copies a record into the index, its moves starting at moves[from]
+	private void put(long key, int length, byte moves[], int from)
+	{
+		int base = find(key);
+		if(index.getLong(base) == key)
+			return;
+		index.putLong(base, key);
+		index.put(base + 8, (byte) length);
+		for(int d = 0 ; length != UNSOLVABLE && d < length ; d ++)
+			index.put(base + 9 + d, moves[from + d]);
+		size++;
+		index.putInt(12, size);
+	}
+
+	//Looks a position up. Returns SOLVED with its winning line pushed on moves,
+	//first move at the bottom, NO_SOLUTION, or null if the position is not stored
+	public synchronized SolveResult lookup(long pegs, Stack<pair> moves)
+	{
+		int t = Symmetry.canonicalTransform(pegs);
+		long key = Symmetry.transform(t, pegs);
+		int base = key == 0 ? -1 : find(key);
+		if(base < 0 || index.getLong(base) != key)
+		{
+			misses++;
+			return null;
+		}
+		hits++;
+		int length = index.get(base + 8) & 0xFF;
+		if(length == UNSOLVABLE)
+			return SolveResult.NO_SOLUTION;
+		for(int d = 0 ; d < length ; d ++)
+		{
+			int m = Symmetry.transformMove(Symmetry.INVERSE[t], index.get(base + 9 + d));
+			moves.push(new pair(BitBoard.MOVE_FROM[m], BitBoard.MOVE_TO[m]));
+		}
+		return SolveResult.SOLVED;
+	}
+
+	//Stores the outcome of a finished search on pegs. moves is the winning line
+	//for SOLVED, first move at the bottom
+	public synchronized void store(long pegs, SolveResult result, Stack<pair> moves) throws IOException
+	{
+		int t = Symmetry.canonicalTransform(pegs);
+		long key = Symmetry.transform(t, pegs);
+		if(key == 0 || index.getLong(find(key)) == key)
+			return;
+		int length = result == SolveResult.SOLVED ? moves.size() : UNSOLVABLE;
+		byte record[] = new byte[recordLength(length)];
+		for(int b = 0 ; b < 8 ; b ++)
+			record[b] = (byte)(key >>> (56 - 8 * b));
+		record[8] = (byte) length;
+		for(int d = 0 ; length != UNSOLVABLE && d < length ; d ++)
+		{
+			pair move = moves.get(d);
+			record[9 + d] = (byte) Symmetry.transformMove(t, moveId(move.x, move.y));
+		}
+		log.seek(log.length());
+		log.write(record);
+		if((size + 1) * 4L > slots * 3L)
+		{
+			rebuild(slots * 2);
+			return;
+		}
+		put(key, length, record, 9);
+		index.putLong(0, log.length());
+	}
+
+	//Id of the jump from one hole to another
+	private static int moveId(int from, int to)
+	{
+		for(int m = BitBoard.FIRST_MOVE[from] ; m < BitBoard.FIRST_MOVE[from+1] ; m ++)
+		{
+			if(BitBoard.MOVE_TO[m] == to)
+				return m;
+		}
+		throw new IllegalArgumentException("No jump from " + from + " to " + to);
+	}
+
+	//Number of positions stored
+	public synchronized int size()
+	{
+		return size;
+	}
+}
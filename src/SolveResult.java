@@ -0,0 +1,10 @@
+/*
+ * How a call to solveGame ended. BUDGET_EXCEEDED means the search was stopped
+ * by its deadline, its node or memory budget or cancel before it could decide the board,
+ * so whether the board can be won is unknown.
+ */
+enum SolveResult {
+	SOLVED,
+	NO_SOLUTION,
+	BUDGET_EXCEEDED
+}
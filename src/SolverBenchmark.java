@@ -0,0 +1,232 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Repeatable performance numbers for the solvers, over the corpus of boards in
+ * the boards directory (easy, hard and unsolvable 7x7 starts). Each benchmark is
+ * run for a number of warm-up iterations, so the JIT has settled, and then for
+ * a number of measured iterations of about one second each. The score is the
+ * mean and standard deviation of ops/s over the measured iterations, together
+ * with ns per expanded node and heap bytes allocated per op. Solvers are built
+ * in an untimed setup step, so only solveGame is measured.
+ *
+ * ParallelSolver is also run on the unsolvable boards with 1, 2 and 4 threads
+ * and one per core. Those boards are searched to the end whatever the move
+ * order, so the ops/s of each thread count against one thread is the speedup.
+ */
+public class SolverBenchmark {
+	//Length of one iteration
+	private static final long ITERATION_NANOS = 1000000000L;
+
+	private int warmups;
+	private int iterations;
+
+	SolverBenchmark(int warmups, int iterations)
+	{
+		this.warmups = warmups;
+		this.iterations = iterations;
+	}
+
+	//Keeps the JIT from discarding results
+	static volatile long sink;
+
+	//One operation under test
+	static abstract class Op
+	{
+		//Untimed preparation before every run
+		void setup() throws Exception
+		{
+		}
+
+		//The timed work. Returns the number of nodes it expanded
+		abstract long run() throws Exception;
+	}
+
+	//Runs an op in warm-up and measured iterations and prints its score
+	void measure(String name, Op op) throws Exception
+	{
+		double scores[] = new double[iterations];
+		long totalOps = 0, totalNodes = 0, totalNanos = 0, totalBytes = 0;
+		for(int it = -warmups ; it < iterations ; it ++)
+		{
+			long ops = 0, nodes = 0, nanos = 0, bytes = 0;
+			while(nanos < ITERATION_NANOS)
+			{
+				op.setup();
+				long startBytes = AllocationBenchmark.allocatedBytes();
+				long start = System.nanoTime();
+				nodes += op.run();
+				nanos += System.nanoTime() - start;
+				bytes += AllocationBenchmark.allocatedBytes() - startBytes;
+				ops++;
+			}
+			if(it >= 0)
+			{
+				scores[it] = ops * 1e9 / nanos;
+				totalOps += ops;
+				totalNodes += nodes;
+				totalNanos += nanos;
+				totalBytes += bytes;
+			}
+		}
+		double mean = 0;
+		for(int i = 0 ; i < iterations ; i ++)
+			mean += scores[i] / iterations;
+		double variance = 0;
+		for(int i = 0 ; i < iterations ; i ++)
+			variance += (scores[i] - mean) * (scores[i] - mean) / Math.max(iterations - 1, 1);
+		System.out.println(String.format("%-44s %12.3f +- %9.3f ops/s %10.1f ns/node %14.1f B/op",
+			name, mean, Math.sqrt(variance),
+			totalNodes == 0 ? 0.0 : (double) totalNanos / totalNodes,
+			(double) totalBytes / totalOps));
+	}
+
+	//Reads a 7-line board
+	static String[] readBoard(File file) throws Exception
+	{
+		String input[] = new String[BitBoard.N];
+		BufferedReader in = new BufferedReader(new FileReader(file));
+		for(int i = 0 ; i < BitBoard.N ; i ++)
+			input[i] = in.readLine();
+		in.close();
+		return input;
+	}
+
+	//1, 2 and 4 threads, then one per core if that is more
+	static List<Integer> threadCounts()
+	{
+		List<Integer> counts = new ArrayList<Integer>();
+		int cores = Runtime.getRuntime().availableProcessors();
+		for(int threads = 1 ; threads <= 4 ; threads *= 2)
+			counts.add(threads);
+		if(cores > 4)
+			counts.add(cores);
+		return counts;
+	}
+
+	public static void main(String[] args) throws Exception {
+		if(args.length < 1 || args.length > 3)  {
+			System.err.println("usage: SolverBenchmark <corpusDir> [warmups] [iterations]");
+			return;
+		}
+		int warmups = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+		int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+		//A fresh solver is built for every op, keep its cache table small
+		if(System.getProperty("peg.cacheMB") == null)
+			System.setProperty("peg.cacheMB", "8");
+		SolverBenchmark bench = new SolverBenchmark(warmups, iterations);
+
+		File categories[] = new File(args[0]).listFiles();
+		Arrays.sort(categories);
+		final List<Long> positions = new ArrayList<Long>();
+		for(File category : categories)
+		{
+			if(!category.isDirectory())
+				continue;
+			File boards[] = category.listFiles();
+			Arrays.sort(boards);
+			for(File file : boards)
+			{
+				final String input[] = readBoard(file);
+				String name = category.getName() + "/" + file.getName();
+				char board[][] = new char[BitBoard.N][];
+				for(int i = 0 ; i < BitBoard.N ; i ++)
+					board[i] = input[i].toCharArray();
+				positions.add(BitBoard.fromBoard(board));
+
+				bench.measure("DFSLauncher.solveGame " + name, new Op() {
+					DFSLauncher solver;
+
+					void setup()
+					{
+						solver = new DFSLauncher(BitBoard.N, input);
+					}
+
+					long run() throws Exception
+					{
+						solver.solveGame();
+						return solver.expandedNodes;
+					}
+				});
+				if(category.getName().equals("unsolvable"))
+				{
+					for(final int threads : threadCounts())
+					{
+						bench.measure("ParallelSolver.solveGame " + threads + "t " + name, new Op() {
+							ParallelSolver solver;
+
+							void setup()
+							{
+								if(solver != null)
+									solver.shutdown();
+								solver = new ParallelSolver(input, threads, 6);
+							}
+
+							long run()
+							{
+								solver.solveGame();
+								return solver.getExpandedNodes();
+							}
+						});
+					}
+				}
+				bench.measure("AStarLauncher.solveGame " + name, new Op() {
+					AStarLauncher solver;
+
+					void setup()
+					{
+						solver = new AStarLauncher(BitBoard.N, input);
+					}
+
+					long run() throws Exception
+					{
+						solver.solveGame();
+						return solver.expandedNodes;
+					}
+				});
+			}
+		}
+
+		//The move-count heuristic alone, over every corpus position and its children.
+		//Each evaluation counts as a node
+		final long boards[] = new long[positions.size() * BitBoard.MOVES];
+		final int moves[] = new int[boards.length];
+		int n = 0;
+		for(long pegs : positions)
+		{
+			for(int m = 0 ; m < BitBoard.MOVES ; m ++)
+			{
+				if(BitBoard.isLegal(pegs, m))
+				{
+					boards[n] = pegs;
+					moves[n++] = m;
+				}
+			}
+		}
+		final int count = n;
+		bench.measure("BitBoard.countMoves x" + count, new Op() {
+			long run()
+			{
+				long sum = 0;
+				for(int i = 0 ; i < count ; i ++)
+					sum += BitBoard.countMoves(boards[i] ^ BitBoard.MOVE_MASK[moves[i]]);
+				sink = sum;
+				return count;
+			}
+		});
+		bench.measure("BitBoard.countMovesAfter x" + count, new Op() {
+			long run()
+			{
+				long sum = 0;
+				for(int i = 0 ; i < count ; i ++)
+					sum += BitBoard.countMovesAfter(boards[i], 1, moves[i]);
+				sink = sum;
+				return count;
+			}
+		});
+	}
+}
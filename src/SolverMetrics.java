@@ -0,0 +1,112 @@
+import java.util.Locale;
+
+/*
+ * The counters of one solveGame, kept by the solver that ran it and reused for
+ * its next board. begin takes a baseline of the cumulative cache and database
+ * counters, end fills in the rest, so every figure is for that solve alone.
+ * Each solve can be written as one JSON object or one CSV line, and is added to
+ * the totals published over JMX by SolverTotals.
+ */
+class SolverMetrics {
+	static final String CSV_HEADER = "solver,result,rejected,nodes,nanos,nodesPerSecond,maxDepth,"
+		+ "firstSolutionNanos,cacheHits,cacheMisses,pagodaPrunes,patternPrunes,databaseHits";
+
+	//Which solver ran, e.g. DFSLauncher
+	String solver;
+	SolveResult result;
+	//Whether the position class check decided the board
+	boolean rejected;
+	long nodes;
+	long nanos;
+	//Deepest node expanded, in moves from the start
+	int maxDepth;
+	//Time until a winning line was found, -1 if none was
+	long firstSolutionNanos;
+	long cacheHits;
+	long cacheMisses;
+	long pagodaPrunes;
+	//Branches cut by DeadPatterns
+	long patternPrunes;
+	long databaseHits;
+	private long startNanos;
+
+	SolverMetrics(String solver)
+	{
+		this.solver = solver;
+		//Registering the MBean takes a while, do it before any solve is timed
+		SolverTotals.get();
+	}
+
+	//Starts the clock and the baselines of a solve
+	void begin(LongHashSet deadCache, SolutionDatabase database)
+	{
+		startNanos = System.nanoTime();
+		firstSolutionNanos = -1;
+		cacheHits = deadCache != null ? -deadCache.hits : 0;
+		cacheMisses = deadCache != null ? -deadCache.misses : 0;
+		databaseHits = database != null ? -database.hits : 0;
+	}
+
+	//Marks the moment a winning line is found
+	void solutionFound()
+	{
+		if(firstSolutionNanos < 0)
+			firstSolutionNanos = System.nanoTime() - startNanos;
+	}
+
+	//Stops the clock and records the counters of the solver
+	void end(SolveResult result, boolean rejected, long nodes, int maxDepth, long pagodaPrunes,
+		long patternPrunes, LongHashSet deadCache, SolutionDatabase database)
+	{
+		nanos = System.nanoTime() - startNanos;
+		this.result = result;
+		this.rejected = rejected;
+		this.nodes = nodes;
+		this.maxDepth = maxDepth;
+		this.pagodaPrunes = pagodaPrunes;
+		this.patternPrunes = patternPrunes;
+		if(deadCache != null)
+		{
+			cacheHits += deadCache.hits;
+			cacheMisses += deadCache.misses;
+		}
+		if(database != null)
+			databaseHits += database.hits;
+		SolverTotals.get().add(this);
+	}
+
+	double nodesPerSecond()
+	{
+		return nanos == 0 ? 0.0 : nodes * 1e9 / nanos;
+	}
+
+	String toJson()
+	{
+		return "{\"solver\":\"" + solver + "\",\"result\":\"" + result + "\",\"rejected\":" + rejected
+			+ ",\"nodes\":" + nodes + ",\"nanos\":" + nanos
+			+ ",\"nodesPerSecond\":" + String.format(Locale.ROOT, "%.1f", nodesPerSecond())
+			+ ",\"maxDepth\":" + maxDepth + ",\"firstSolutionNanos\":" + firstSolutionNanos
+			+ ",\"cacheHits\":" + cacheHits + ",\"cacheMisses\":" + cacheMisses
+			+ ",\"pagodaPrunes\":" + pagodaPrunes + ",\"patternPrunes\":" + patternPrunes
+			+ ",\"databaseHits\":" + databaseHits + "}";
+	}
+
+	//One line in the column order of CSV_HEADER
+	String toCsv()
+	{
+		return solver + "," + result + "," + rejected + "," + nodes + "," + nanos + ","
+			+ String.format(Locale.ROOT, "%.1f", nodesPerSecond()) + "," + maxDepth + "," + firstSolutionNanos + ","
+			+ cacheHits + "," + cacheMisses + "," + pagodaPrunes + "," + patternPrunes + "," + databaseHits;
+	}
+
+	//The line asked for by -Dpeg.metrics (json or csv), or null if it is not set
+	String format()
+	{
+		String format = System.getProperty("peg.metrics");
+		if("json".equals(format))
+			return toJson();
+		if("csv".equals(format))
+			return toCsv();
+		return null;
+	}
+}
@@ -0,0 +1,37 @@
+/*
+ * Totals over every solve in the JVM, published over JMX as
+ * pegSolitaire:type=SolverMetrics so that a dashboard can poll throughput
+ * without reading console output.
+ */
+public interface SolverMetricsMXBean {
+	long getSolves();
+
+	long getSolved();
+
+	long getNoSolution();
+
+	long getBudgetExceeded();
+
+	long getNodesExpanded();
+
+	long getSolveNanos();
+
+	//Nodes expanded per second of solving, over all solves
+	double getNodesPerSecond();
+
+	//Deepest node any solve expanded
+	int getMaxDepth();
+
+	long getCacheHits();
+
+	long getCacheMisses();
+
+	long getPagodaPrunes();
+
+	long getPatternPrunes();
+
+	long getDatabaseHits();
+
+	//The last solve as a JSON object
+	String getLastSolve();
+}
@@ -0,0 +1,135 @@
+import java.lang.management.ManagementFactory;
+import javax.management.ObjectName;
+
+/*
+ * Adds up the metrics of every solve in the JVM. There is one instance, which
+ * registers itself with the platform MBean server the first time it is used.
+ * Solvers on different threads add to it, so every method is synchronized.
+ */
+class SolverTotals implements SolverMetricsMXBean {
+	static final String NAME = "pegSolitaire:type=SolverMetrics";
+
+	private static SolverTotals instance;
+
+	private long solves;
+	private long solved;
+	private long noSolution;
+	private long budgetExceeded;
+	private long nodes;
+	private long nanos;
+	private int maxDepth;
+	private long cacheHits;
+	private long cacheMisses;
+	private long pagodaPrunes;
+	private long patternPrunes;
+	private long databaseHits;
+	private String lastSolve = "";
+
+	static synchronized SolverTotals get()
+	{
+		if(instance == null)
+		{
+			instance = new SolverTotals();
+			try
+			{
+				ManagementFactory.getPlatformMBeanServer().registerMBean(instance, new ObjectName(NAME));
+			}
+			catch(Exception e)
+			{
+				//Totals are still kept, they are just not published
+				System.err.println("Cannot register " + NAME + ": " + e);
+			}
+		}
+		return instance;
+	}
+
+	synchronized void add(SolverMetrics metrics)
+	{
+		solves++;
+		if(metrics.result == SolveResult.SOLVED)
+			solved++;
+		else if(metrics.result == SolveResult.NO_SOLUTION)
+			noSolution++;
+		else
+			budgetExceeded++;
+		nodes += metrics.nodes;
+		nanos += metrics.nanos;
+		maxDepth = Math.max(maxDepth, metrics.maxDepth);
+		cacheHits += metrics.cacheHits;
+		cacheMisses += metrics.cacheMisses;
+		pagodaPrunes += metrics.pagodaPrunes;
+		patternPrunes += metrics.patternPrunes;
+		databaseHits += metrics.databaseHits;
+		lastSolve = metrics.toJson();
+	}
+
+	public synchronized long getSolves()
+	{
+		return solves;
+	}
+
+	public synchronized long getSolved()
+	{
+		return solved;
+	}
+
+	public synchronized long getNoSolution()
+	{
+		return noSolution;
+	}
+
+	public synchronized long getBudgetExceeded()
+	{
+		return budgetExceeded;
+	}
+
+	public synchronized long getNodesExpanded()
+	{
+		return nodes;
+	}
+
+	public synchronized long getSolveNanos()
+	{
+		return nanos;
+	}
+
+	public synchronized double getNodesPerSecond()
+	{
+		return nanos == 0 ? 0.0 : nodes * 1e9 / nanos;
+	}
+
+	public synchronized int getMaxDepth()
+	{
+		return maxDepth;
+	}
+
+	public synchronized long getCacheHits()
+	{
+		return cacheHits;
+	}
+
+	public synchronized long getCacheMisses()
+	{
+		return cacheMisses;
+	}
+
+	public synchronized long getPagodaPrunes()
+	{
+		return pagodaPrunes;
+	}
+
+	public synchronized long getPatternPrunes()
+	{
+		return patternPrunes;
+	}
+
+	public synchronized long getDatabaseHits()
+	{
+		return databaseHits;
+	}
+
+	public synchronized String getLastSolve()
+	{
+		return lastSolve;
+	}
+}
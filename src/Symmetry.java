@@ -0,0 +1,82 @@
+/*
+ * The 8 rotations and reflections of the English board. The cross and its
+ * centre target are invariant under all of them, so a position and its images
+ * are either all winning or all dead, and can share one canonical key: the
+ * smallest of the 8 images. The maps and image tables are those BoardTopology
+ * built for the English board; this class only adds the inverse of each
+ * transform and static entry points for the English searches, which read the
+ * 5 bytes the 33 holes span with no loop.
+ */
+class Symmetry {
+	//Number of symmetries of the board
+	static final int COUNT = BitBoard.TOPOLOGY.symmetry.length;
+	//Hole that hole h is sent to by transform t
+	static final int MAP[][] = BitBoard.TOPOLOGY.symmetry;
+	//Transform that undoes transform t
+	static final int INVERSE[] = new int[COUNT];
+	//The image tables of the board, read through a static final so that the
+	//transforms below compile to plain table reads
+	private static final long IMAGE[][] = BitBoard.TOPOLOGY.image;
+
+	static
+	{
+		for(int t = 0 ; t < COUNT ; t ++)
+		{
+			for(int u = 0 ; u < COUNT ; u ++)
+			{
+				boolean undoes = true;
+				for(int h = 0 ; h < BitBoard.HOLES ; h ++)
+					undoes &= MAP[u][MAP[t][h]] == h;
+				if(undoes)
+					INVERSE[t] = u;
+			}
+		}
+	}
+
+	//Image of a position under transform t
+	static long transform(int t, long pegs)
+	{
+		long table[] = IMAGE[t];
+		return table[(int)pegs & 0xFF]
+			| table[256 + ((int)(pegs >>> 8) & 0xFF)]
+			| table[512 + ((int)(pegs >>> 16) & 0xFF)]
+			| table[768 + ((int)(pegs >>> 24) & 0xFF)]
+			| table[1024 + ((int)(pegs >>> 32) & 0xFF)];
+	}
+
+	//Smallest of the 8 images of a position
+	static long canonical(long pegs)
+	{
+		long best = pegs;
+		for(int t = 1 ; t < COUNT ; t ++)
+		{
+			long image = transform(t, pegs);
+			if(image < best)
+				best = image;
+		}
+		return best;
+	}
+
+	//Transform that takes a position to its canonical image
+	static int canonicalTransform(long pegs)
+	{
+		long best = pegs;
+		int bestT = 0;
+		for(int t = 1 ; t < COUNT ; t ++)
+		{
+			long image = transform(t, pegs);
+			if(image < best)
+			{
+				best = image;
+				bestT = t;
+			}
+		}
+		return bestT;
+	}
+
+	//Image of move m under transform t
+	static int transformMove(int t, int m)
+	{
+		return BitBoard.TOPOLOGY.moveId(MAP[t][BitBoard.MOVE_FROM[m]], MAP[t][BitBoard.MOVE_TO[m]]);
+	}
+}
@@ -0,0 +1,134 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Stack;
+
+/*
+ * Lookups in the levels written by RetrogradeEnumerator. Each level file is
+ * mapped read-only and searched by bisection, so a query touches a few pages of
+ * one level and nothing is loaded up front. A position with more pegs than the
+ * levels enumerated is not covered, and contains says nothing about it.
+ */
+class WinningSet {
+	//Sorted canonical keys of every level, by peg count
+	private LongBuffer level[] = new LongBuffer[BitBoard.HOLES + 1];
+	//Largest peg count covered
+	private int maxPegs;
+
+	//Maps the levels found in dir, from one peg up to the first one missing
+	public WinningSet(File dir) throws IOException
+	{
+		for(int pegs = 1 ; pegs <= BitBoard.HOLES ; pegs ++)
+		{
+			File file = RetrogradeEnumerator.levelFile(dir, pegs);
+			if(!file.exists())
+				break;
+			RandomAccessFile in = new RandomAccessFile(file, "r");
+			if(in.length() > Integer.MAX_VALUE)
+			{
+				in.close();
+				throw new IOException(file + " is too large to map");
+			}
+			level[pegs] = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length()).asLongBuffer();
+			in.close();
+			maxPegs = pegs;
+		}
+	}
+
+	//Whether the levels go up to the peg count of this position
+	public boolean covers(long pegs)
+	{
+		int n = Long.bitCount(pegs);
+		return n >= 1 && n <= maxPegs;
+	}
+
+	public int getMaxPegs()
+	{
+		return maxPegs;
+	}
+
+	//Whether the centre finish can be reached from a covered position
+	public boolean contains(long pegs)
+	{
+		if(!covers(pegs))
+			return false;
+		LongBuffer keys = level[Long.bitCount(pegs)];
+		long key = Symmetry.canonical(pegs);
+		int low = 0;
+		int high = keys.limit() - 1;
+		while(low <= high)
+		{
+			int mid = (low + high) >>> 1;
+			long k = keys.get(mid);
+			if(k < key)
+				low = mid + 1;
+			else if(k > key)
+				high = mid - 1;
+			else
+				return true;
+		}
+		return false;
+	}
+
+	//A move from a winning position that keeps it winning, or -1 if there is none
+	public int winningMove(long pegs)
+	{
+		for(int m = 0 ; m < BitBoard.MOVES ; m ++)
+		{
+			if(BitBoard.isLegal(pegs, m) && contains(pegs ^ BitBoard.MOVE_MASK[m]))
+				return m;
+		}
+		return -1;
+	}
+
+	public static void main(String[] args) throws Exception {
+		int N = 7;
+		if(args.length != 2)  {
+			System.err.println("usage: WinningSet <levelDir> <filePath>");
+			return;
+		}
+		WinningSet set = new WinningSet(new File(args[0]));
+		String input[] = new String[N];
+		BoardReader in = new BoardReader(args[1], N);
+		if(!in.next(input))
+		{
+			System.err.println("No board in "+args[1]);
+			return;
+		}
+		in.close();
+		char board[][] = new char[N][];
+		for(int i = 0 ; i < N ; i ++)
+		{
+			System.out.println(input[i]);
+			board[i] = input[i].toCharArray();
+		}
+		long pegs = BitBoard.fromBoard(board);
+		if(!set.covers(pegs))
+		{
+			System.out.println("Levels only go up to "+set.getMaxPegs()+" pegs");
+			return;
+		}
+		if(!set.contains(pegs))
+		{
+			System.out.print("No Winning path on this configuration");
+			return;
+		}
+		//Every step picks a child that is still in the winning set. The line is shown
+		//the way the launchers do, last move first
+		Stack<pair> moves = new Stack<pair>();
+		while(Long.bitCount(pegs) > 1)
+		{
+			int m = set.winningMove(pegs);
+			moves.push(new pair(BitBoard.MOVE_FROM[m], BitBoard.MOVE_TO[m]));
+			pegs ^= BitBoard.MOVE_MASK[m];
+		}
+		while(!moves.empty())
+		{
+			pair top = moves.pop();
+			System.out.print("( "+top.x+","+top.y+" )  ");
+		}
+		System.out.println();
+	}
+}